@@ -0,0 +1,106 @@
+import java.util.*;
+
+// ============================================================================
+// AVAILABILITY INDEX CLASS
+// ============================================================================
+
+public class AvailabilityIndex {
+    // For each day, the ids of the employees still available that day, packed at the front
+    // of an array in no particular order. Removing an id moves the last one into its place,
+    // so adding, removing and picking a random available employee all take O(1).
+    // Employees report every change to their assignments through refresh().
+    
+    private List<Employee> employees; // [id] -> employee
+    private int[][] available; // [day] -> ids; the first availableCount[day] entries are used
+    private int[] availableCount; // [day]
+    private int[][] position; // [day][id] -> index of the id in available[day], -1 if not available
+    
+    public AvailabilityIndex() {
+        this.employees = new ArrayList<>();
+        this.available = new int[Day.COUNT][16];
+        this.availableCount = new int[Day.COUNT];
+        this.position = new int[Day.COUNT][16];
+        for (int day = 0; day < Day.COUNT; day++) {
+            Arrays.fill(this.position[day], -1);
+        }
+    }
+    
+    public void add(Employee employee) {
+        // Start tracking an employee; ids must be added in order 0, 1, 2, ...
+        if (employee.getId() != this.employees.size()) {
+            throw new IllegalArgumentException("Expected employee id " + this.employees.size() + ", got " + employee.getId());
+        }
+        this.employees.add(employee);
+        if (this.employees.size() > this.position[0].length) {
+            for (int day = 0; day < Day.COUNT; day++) {
+                int oldSize = this.position[day].length;
+                this.position[day] = Arrays.copyOf(this.position[day], oldSize * 2);
+                Arrays.fill(this.position[day], oldSize, oldSize * 2, -1);
+            }
+        }
+        employee.setAvailabilityIndex(this);
+        this.refresh(employee);
+    }
+    
+    public void refresh(Employee employee) {
+        // Bring an employee's entries in line with isAvailable() for every day
+        int id = employee.getId();
+        for (Day day : Schedule.DAYS) {
+            int d = day.ordinal();
+            boolean indexed = this.position[d][id] >= 0;
+            if (employee.isAvailable(day) && !indexed) {
+                if (this.availableCount[d] == this.available[d].length) {
+                    this.available[d] = Arrays.copyOf(this.available[d], this.availableCount[d] * 2);
+                }
+                this.position[d][id] = this.availableCount[d];
+                this.available[d][this.availableCount[d]++] = id;
+            } else if (!employee.isAvailable(day) && indexed) {
+                this.removeEntry(d, id);
+            }
+        }
+    }
+    
+    public void remove(Employee employee) {
+        // Stop tracking an employee. Ids stay dense: the employee with the highest id takes over
+        // the removed id here, and the caller renumbers that employee (see Employee.setId)
+        int id = employee.getId();
+        int lastId = this.employees.size() - 1;
+        for (int d = 0; d < Day.COUNT; d++) {
+            if (this.position[d][id] >= 0) {
+                this.removeEntry(d, id);
+            }
+            if (id != lastId && this.position[d][lastId] >= 0) {
+                int index = this.position[d][lastId];
+                this.available[d][index] = id;
+                this.position[d][id] = index;
+                this.position[d][lastId] = -1;
+            }
+        }
+        this.employees.set(id, this.employees.get(lastId));
+        this.employees.remove(lastId);
+        employee.setAvailabilityIndex(null);
+    }
+    
+    public int getAvailableCount(Day day) {
+        // Number of employees who can still take a shift on a specific day
+        return this.availableCount[day.ordinal()];
+    }
+    
+    public Employee pickRandom(Day day, Random random) {
+        // A uniformly random employee available on a specific day, null if there is none
+        int count = this.availableCount[day.ordinal()];
+        if (count == 0) {
+            return null;
+        }
+        return this.employees.get(this.available[day.ordinal()][random.nextInt(count)]);
+    }
+    
+    private void removeEntry(int d, int id) {
+        // Fill the gap with the last id
+        int gap = this.position[d][id];
+        int last = this.available[d][--this.availableCount[d]];
+        this.available[d][gap] = last;
+        this.position[d][last] = gap;
+        this.position[d][id] = -1;
+    }
+}
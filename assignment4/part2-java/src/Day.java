@@ -0,0 +1,40 @@
+// ============================================================================
+// DAY ENUM
+// ============================================================================
+
+public enum Day {
+    MONDAY("Monday"),
+    TUESDAY("Tuesday"),
+    WEDNESDAY("Wednesday"),
+    THURSDAY("Thursday"),
+    FRIDAY("Friday"),
+    SATURDAY("Saturday"),
+    SUNDAY("Sunday");
+    
+    public static final int COUNT = values().length;
+    
+    private final String displayName;
+    
+    Day(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return this.displayName;
+    }
+    
+    public static Day fromName(String name) {
+        // Case-insensitive lookup by display name, null if there is no such day
+        for (Day day : values()) {
+            if (day.displayName.equalsIgnoreCase(name.trim())) {
+                return day;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public String toString() {
+        return this.displayName;
+    }
+}
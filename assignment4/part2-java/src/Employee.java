@@ -5,49 +5,103 @@ import java.util.*;
 // ============================================================================
 
 public class Employee {
+    private static final Shift[] NO_PREFERENCES = new Shift[0];
+    
+    private int id; // index in the roster, used as the bit in the schedule's occupancy sets
     private String name;
-    private Map<String, List<String>> preferences; // {day: [shift1, shift2, shift3]} - ranked preferences
-    private Map<String, String> assignedShifts; // {day: shift} - final schedule assignments
+    private Shift[][] preferences; // [day] -> {shift1, shift2, shift3} - ranked preferences
+    private Shift[] assignedShifts; // [day] -> shift, null if not working - final schedule assignments
     private int daysWorked;
     private int maxDays;
+    private AvailabilityIndex availability; // told about every assignment, null if not indexed
     
-    public Employee(String name) {
+    public Employee(int id, String name) {
+        this.id = id;
         this.name = name;
-        this.preferences = new HashMap<>();
-        this.assignedShifts = new HashMap<>();
+        this.preferences = new Shift[Day.COUNT][];
+        Arrays.fill(this.preferences, NO_PREFERENCES);
+        this.assignedShifts = new Shift[Day.COUNT];
         this.daysWorked = 0;
         this.maxDays = 5;
     }
     
-    public void addPreference(String day, List<String> shiftPreferences) {
+    public void addPreference(Day day, List<Shift> shiftPreferences) {
         // Add ranked shift preferences for a specific day
-        this.preferences.put(day, new ArrayList<>(shiftPreferences));
+        this.preferences[day.ordinal()] = shiftPreferences.toArray(NO_PREFERENCES);
     }
     
-    public boolean assignShift(String day, String shift) {
+    public boolean assignShift(Day day, Shift shift) {
         // Assign employee to a shift on a specific day
         if (this.daysWorked >= this.maxDays) {
             return false;
         }
-        if (!this.assignedShifts.containsKey(day)) {
-            this.assignedShifts.put(day, shift);
+        if (this.assignedShifts[day.ordinal()] == null) {
+            this.assignedShifts[day.ordinal()] = shift;
             this.daysWorked++;
+            if (this.availability != null) {
+                this.availability.refresh(this);
+            }
             return true;
         }
         return false;
     }
     
-    public boolean isAvailable(String day) {
+    public Shift unassignShift(Day day) {
+        // Remove the assignment on a specific day; returns the shift, or null if there was none
+        Shift shift = this.assignedShifts[day.ordinal()];
+        if (shift != null) {
+            this.assignedShifts[day.ordinal()] = null;
+            this.daysWorked--;
+            if (this.availability != null) {
+                this.availability.refresh(this);
+            }
+        }
+        return shift;
+    }
+    
+    public boolean isAvailable(Day day) {
         // Check if employee is available on a specific day
-        return !this.assignedShifts.containsKey(day) && this.daysWorked < this.maxDays;
+        return this.assignedShifts[day.ordinal()] == null && this.daysWorked < this.maxDays;
     }
     
-    public List<String> getPreferredShifts(String day) {
+    public Shift[] getPreferredShifts(Day day) {
         // Get ranked shift preferences for a specific day
-        return this.preferences.getOrDefault(day, new ArrayList<>());
+        // The array is shared, not copied, so callers must not modify it
+        return this.preferences[day.ordinal()];
+    }
+    
+    public int getPreferenceRank(Day day, Shift shift) {
+        // Position of a shift in the ranked preferences for a day (0 = first choice), -1 if not ranked
+        Shift[] ranked = this.preferences[day.ordinal()];
+        for (int rank = 0; rank < ranked.length; rank++) {
+            if (ranked[rank] == shift) {
+                return rank;
+            }
+        }
+        return -1;
+    }
+    
+    public int getPreferenceScore(Day day, Shift shift) {
+        // Satisfaction from working a shift: 3 for a first choice, 2 for a second, 1 for a third,
+        // 0 for a shift that was not ranked
+        int rank = this.getPreferenceRank(day, shift);
+        return rank < 0 ? 0 : Shift.COUNT - rank;
+    }
+    
+    public void setId(int id) {
+        // Only for keeping ids dense when another employee leaves the roster
+        this.id = id;
+    }
+    
+    public void setAvailabilityIndex(AvailabilityIndex availability) {
+        this.availability = availability;
     }
     
     // Getters
+    public int getId() {
+        return this.id;
+    }
+    
     public String getName() {
         return this.name;
     }
@@ -56,8 +110,22 @@ public class Employee {
         return this.daysWorked;
     }
     
-    public Map<String, String> getAssignedShifts() {
-        return new HashMap<>(this.assignedShifts);
+    public int getMaxDays() {
+        return this.maxDays;
+    }
+    
+    public Shift getAssignedShift(Day day) {
+        return this.assignedShifts[day.ordinal()];
+    }
+    
+    public Map<Day, Shift> getAssignedShifts() {
+        Map<Day, Shift> assigned = new EnumMap<>(Day.class);
+        for (Day day : Schedule.DAYS) {
+            if (this.assignedShifts[day.ordinal()] != null) {
+                assigned.put(day, this.assignedShifts[day.ordinal()]);
+            }
+        }
+        return assigned;
     }
 }
 
@@ -1,18 +1,58 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 // ============================================================================
 // MAIN SCHEDULER CLASS
 // ============================================================================
 
 public class EmployeeScheduler {
+    public enum Solver {
+        GREEDY,  // three passes over the roster: first choices, other choices, then fill to minimum
+        OPTIMAL, // min-cost flow maximizing total preference satisfaction (see OptimalScheduler)
+        PARALLEL // greedy passes run one day per thread on a ForkJoinPool (see ParallelScheduler)
+    }
+    
     private List<Employee> employees;
     private Schedule schedule;
     private Scanner scanner;
+    private Solver solver;
+    private AvailabilityIndex availability;
+    private Random random;
+    private int parallelism;
     
     public EmployeeScheduler() {
         this.employees = new ArrayList<>();
         this.schedule = new Schedule();
         this.scanner = new Scanner(System.in);
+        this.solver = Solver.GREEDY;
+        this.availability = new AvailabilityIndex();
+        this.random = new Random();
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    
+    public void setParallelism(int parallelism) {
+        // Number of threads used by the parallel solver
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+    
+    public void setSeed(long seed) {
+        // Make the random choices when filling understaffed shifts reproducible
+        this.random = new Random(seed);
+    }
+    
+    public void setSolver(Solver solver) {
+        this.solver = solver;
+    }
+    
+    public Employee addEmployee(String name) {
+        // Add an employee to the roster; the roster index becomes their id
+        Employee employee = new Employee(this.employees.size(), name);
+        this.employees.add(employee);
+        this.availability.add(employee);
+        return employee;
     }
     
     public void collectEmployeeData() {
@@ -31,15 +71,14 @@ public class EmployeeScheduler {
                 continue;
             }
             
-            Employee employee = new Employee(name);
-            this.employees.add(employee);
+            Employee employee = this.addEmployee(name);
             
             System.out.println("\nSetting preferences for " + name);
             System.out.println("Available days: Monday, Tuesday, Wednesday, Thursday, Friday, Saturday, Sunday");
             System.out.println("Available shifts: morning, afternoon, evening");
             
             // Collect preferences for each day
-            for (String day : Schedule.DAYS) {
+            for (Day day : Schedule.DAYS) {
                 System.out.print("\nDoes " + name + " want to work on " + day + "? (y/n): ");
                 String workToday = scanner.nextLine().trim().toLowerCase();
                 if (workToday.equals("y") || workToday.equals("yes")) {
@@ -50,11 +89,11 @@ public class EmployeeScheduler {
                     
                     if (!shiftInput.isEmpty()) {
                         String[] shifts = shiftInput.split(",");
-                        List<String> validShifts = new ArrayList<>();
-                        for (String shift : shifts) {
-                            String trimmedShift = shift.trim().toLowerCase();
-                            if (Arrays.asList(Schedule.SHIFTS).contains(trimmedShift)) {
-                                validShifts.add(trimmedShift);
+                        List<Shift> validShifts = new ArrayList<>();
+                        for (String shiftName : shifts) {
+                            Shift shift = Shift.fromName(shiftName);
+                            if (shift != null) {
+                                validShifts.add(shift);
                             }
                         }
                         if (!validShifts.isEmpty()) {
@@ -68,24 +107,56 @@ public class EmployeeScheduler {
         }
     }
     
+    public void generateEmployees(int count, long seed) {
+        // Generate a random roster, e.g. to try the scheduler on thousands of employees
+        // The same seed always produces the same roster
+        Random random = new Random(seed);
+        List<Shift> shifts = new ArrayList<>(Arrays.asList(Schedule.SHIFTS));
+        for (int i = 0; i < count; i++) {
+            Employee employee = this.addEmployee("Employee" + (i + 1));
+            for (Day day : Schedule.DAYS) {
+                // Each employee wants to work about two days in three, ranking one to three shifts
+                if (random.nextInt(3) == 0) {
+                    continue;
+                }
+                Collections.shuffle(shifts, random);
+                employee.addPreference(day, shifts.subList(0, 1 + random.nextInt(Shift.COUNT)));
+            }
+        }
+    }
+    
     public void assignEmployees() {
         // Main scheduling algorithm with preference prioritization
-        System.out.println("\nGenerating schedule...");
+        if (this.solver == Solver.OPTIMAL) {
+            new OptimalScheduler(this.employees, this.schedule).assignEmployees();
+            return;
+        }
+        if (this.solver == Solver.PARALLEL) {
+            // The seed for the day budgets comes from the scheduler's Random, so --seed fixes it
+            ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+            try {
+                new ParallelScheduler(this.employees, this.schedule, pool, this.random.nextLong()).assignEmployees();
+            } finally {
+                pool.shutdown();
+            }
+            this.fillUnderstaffedShifts();
+            return;
+        }
         
         // First pass: Assign based on first preferences
         for (Employee employee : this.employees) {
-            for (String day : Schedule.DAYS) {
+            for (Day day : Schedule.DAYS) {
                 if (!employee.isAvailable(day)) {
                     continue;
                 }
                 
-                List<String> preferredShifts = employee.getPreferredShifts(day);
-                if (preferredShifts.isEmpty()) {
+                Shift[] preferredShifts = employee.getPreferredShifts(day);
+                if (preferredShifts.length == 0) {
                     continue;
                 }
                 
                 // Try to assign to first preference
-                String firstPreference = preferredShifts.get(0);
+                Shift firstPreference = preferredShifts[0];
                 if (!this.schedule.isShiftFull(day, firstPreference)) {
                     if (employee.assignShift(day, firstPreference)) {
                         this.schedule.addEmployeeToShift(day, firstPreference, employee);
@@ -96,18 +167,18 @@ public class EmployeeScheduler {
         
         // Second pass: Handle conflicts and assign remaining preferences
         for (Employee employee : this.employees) {
-            for (String day : Schedule.DAYS) {
+            for (Day day : Schedule.DAYS) {
                 if (!employee.isAvailable(day)) {
                     continue;
                 }
                 
-                List<String> preferredShifts = employee.getPreferredShifts(day);
-                if (preferredShifts.isEmpty()) {
+                Shift[] preferredShifts = employee.getPreferredShifts(day);
+                if (preferredShifts.length == 0) {
                     continue;
                 }
                 
                 // Try each preference in order
-                for (String shift : preferredShifts) {
+                for (Shift shift : preferredShifts) {
                     if (!this.schedule.isShiftFull(day, shift)) {
                         if (employee.assignShift(day, shift)) {
                             this.schedule.addEmployeeToShift(day, shift, employee);
@@ -124,34 +195,193 @@ public class EmployeeScheduler {
     
     public void fillUnderstaffedShifts() {
         // Fill shifts that don't meet minimum staffing requirements
-        List<String[]> understaffed = this.schedule.getUnderstaffedShifts();
+        this.fillUnderstaffedShifts(null);
+    }
+    
+    private void fillUnderstaffedShifts(ScheduleChangeSet changes) {
+        // Only looks at the understaffed slots, so it is cheap enough to run after every update
+        int[] understaffed = this.schedule.getUnderstaffedShifts();
         
-        for (String[] shiftInfo : understaffed) {
-            String day = shiftInfo[0];
-            String shift = shiftInfo[1];
-            int needed = this.schedule.getMinEmployeesPerShift() - this.schedule.getShiftCount(day, shift);
+        for (int slot : understaffed) {
+            Day day = Schedule.dayOf(slot);
+            Shift shift = Schedule.shiftOf(slot);
+            int needed = this.schedule.getRequiredStaff(day, shift) - this.schedule.getShiftCount(day, shift);
             
-            // Find available employees
-            List<Employee> availableEmployees = new ArrayList<>();
-            for (Employee emp : this.employees) {
-                if (emp.isAvailable(day)) {
-                    availableEmployees.add(emp);
+            // Randomly select available employees to fill the shift; each assignment takes
+            // the employee out of the day's availability index, so nobody is picked twice
+            while (needed > 0) {
+                Employee employee = this.availability.pickRandom(day, this.random);
+                if (employee == null || !this.assign(employee, day, shift, changes)) {
+                    break;
                 }
+                needed--;
             }
-            
-            // Randomly select employees to fill the shift
-            int toSelect = Math.min(needed, availableEmployees.size());
-            if (toSelect > 0) {
-                Collections.shuffle(availableEmployees);
-                List<Employee> selected = availableEmployees.subList(0, toSelect);
-                
-                for (Employee employee : selected) {
-                    if (employee.assignShift(day, shift)) {
-                        this.schedule.addEmployeeToShift(day, shift, employee);
+        }
+    }
+    
+    // Incremental updates: each one changes a single employee or shift on a scheduled roster and
+    // repairs only the slots and employees it touches, instead of rescheduling everyone.
+    // Nobody else is moved to a better shift, so after many updates the schedule can differ
+    // from what assignEmployees() would build from scratch.
+    
+    public ScheduleChangeSet updatePreferences(Employee employee, Map<Day, List<Shift>> preferences) {
+        // Replace an employee's preferences (days missing from the map are not wanted) and move
+        // them to their best-ranked shift with room on each day. Use it after addEmployee() to
+        // schedule a new employee. Assignments the new preferences no longer rank are dropped,
+        // except those that were not ranked before either (placed only to reach the minimum).
+        this.checkOnRoster(employee);
+        ScheduleChangeSet changes = new ScheduleChangeSet();
+        BitSet freedSlots = new BitSet(Schedule.SLOT_COUNT);
+        for (Day day : Schedule.DAYS) {
+            Shift assigned = employee.getAssignedShift(day);
+            boolean wasRanked = assigned != null && employee.getPreferenceRank(day, assigned) >= 0;
+            employee.addPreference(day, preferences.getOrDefault(day, Collections.emptyList()));
+            if (wasRanked && employee.getPreferenceRank(day, assigned) < 0) {
+                this.unassign(employee, day, changes);
+                freedSlots.set(Schedule.slot(day, assigned));
+            }
+        }
+        this.placeEmployee(employee, freedSlots, changes);
+        this.repairSlots(freedSlots, changes);
+        return changes;
+    }
+    
+    public ScheduleChangeSet removeEmployee(Employee employee) {
+        // Take an employee off the roster and refill the shifts they leave. Ids stay equal to
+        // roster indexes, so the last employee on the roster takes over the removed one's id
+        this.checkOnRoster(employee);
+        ScheduleChangeSet changes = new ScheduleChangeSet();
+        BitSet freedSlots = new BitSet(Schedule.SLOT_COUNT);
+        for (Day day : Schedule.DAYS) {
+            Shift assigned = this.unassign(employee, day, changes);
+            if (assigned != null) {
+                freedSlots.set(Schedule.slot(day, assigned));
+            }
+        }
+        
+        int id = employee.getId();
+        Employee last = this.employees.remove(this.employees.size() - 1);
+        this.availability.remove(employee);
+        if (last != employee) {
+            this.employees.set(id, last);
+            this.schedule.renumberEmployee(last.getId(), id);
+            last.setId(id);
+        }
+        
+        this.repairSlots(freedSlots, changes);
+        return changes;
+    }
+    
+    public ScheduleChangeSet setShiftCapacity(Day day, Shift shift, int capacity) {
+        // Change how many employees one shift can take. Above the new capacity, the employees
+        // who ranked the shift lowest (latest added first among equals) are displaced and
+        // placed again on their wanted days; new room goes to available employees who rank it
+        ScheduleChangeSet changes = new ScheduleChangeSet();
+        this.schedule.setShiftCapacity(day, shift, capacity);
+        
+        List<Employee> displaced = new ArrayList<>();
+        List<Employee> roster = new ArrayList<>(this.schedule.getShiftRoster(day, shift));
+        Collections.reverse(roster); // latest added first; the sort below is stable
+        roster.sort(Comparator.comparingInt(employee -> employee.getPreferenceScore(day, shift)));
+        for (int i = 0; i < roster.size() - capacity; i++) {
+            this.unassign(roster.get(i), day, changes);
+            displaced.add(roster.get(i));
+        }
+        
+        BitSet freedSlots = new BitSet(Schedule.SLOT_COUNT);
+        for (Employee employee : displaced) {
+            this.placeEmployee(employee, freedSlots, changes);
+        }
+        freedSlots.set(Schedule.slot(day, shift));
+        this.repairSlots(freedSlots, changes);
+        return changes;
+    }
+    
+    private void checkOnRoster(Employee employee) {
+        int id = employee.getId();
+        if (id < 0 || id >= this.employees.size() || this.employees.get(id) != employee) {
+            throw new IllegalArgumentException(employee.getName() + " is not on the roster");
+        }
+    }
+    
+    private void placeEmployee(Employee employee, BitSet freedSlots, ScheduleChangeSet changes) {
+        // On each day, move the employee to the best-ranked shift with room that beats their
+        // current one, like the greedy passes; slots they leave are added to freedSlots
+        for (Day day : Schedule.DAYS) {
+            Shift assigned = employee.getAssignedShift(day);
+            if (assigned == null && !employee.isAvailable(day)) {
+                continue;
+            }
+            Shift[] ranked = employee.getPreferredShifts(day);
+            int currentRank = assigned == null ? ranked.length : employee.getPreferenceRank(day, assigned);
+            for (int rank = 0; rank < currentRank; rank++) {
+                if (!this.schedule.isShiftFull(day, ranked[rank])) {
+                    if (assigned != null) {
+                        this.unassign(employee, day, changes);
+                        freedSlots.set(Schedule.slot(day, assigned));
                     }
+                    this.assign(employee, day, ranked[rank], changes);
+                    break;
+                }
+            }
+        }
+    }
+    
+    private void repairSlots(BitSet slots, ScheduleChangeSet changes) {
+        // Give the room in the given slots to available employees who rank the shift, best
+        // rank first and roster order among equals, then fill any shift below the minimum
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            Day day = Schedule.dayOf(slot);
+            Shift shift = Schedule.shiftOf(slot);
+            int room = this.schedule.getShiftCapacity(day, shift) - this.schedule.getShiftCount(day, shift);
+            if (room <= 0) {
+                continue;
+            }
+            
+            // candidates[rank] keeps the first `room` employees of each rank; the scan stops as
+            // soon as there are enough first choices, which on a large roster is almost at once
+            List<List<Employee>> candidates = new ArrayList<>();
+            for (int rank = 0; rank < Shift.COUNT; rank++) {
+                candidates.add(new ArrayList<>());
+            }
+            for (Employee employee : this.employees) {
+                if (candidates.get(0).size() == room) {
+                    break;
+                }
+                int rank = employee.getPreferenceRank(day, shift);
+                if (rank >= 0 && candidates.get(rank).size() < room && employee.isAvailable(day)) {
+                    candidates.get(rank).add(employee);
+                }
+            }
+            for (List<Employee> rankCandidates : candidates) {
+                for (int i = 0; i < rankCandidates.size() && room > 0; i++, room--) {
+                    this.assign(rankCandidates.get(i), day, shift, changes);
                 }
             }
         }
+        this.fillUnderstaffedShifts(changes);
+    }
+    
+    private boolean assign(Employee employee, Day day, Shift shift, ScheduleChangeSet changes) {
+        // Add an assignment to the employee and the schedule, noting it in changes if given
+        if (!employee.assignShift(day, shift)) {
+            return false;
+        }
+        this.schedule.addEmployeeToShift(day, shift, employee);
+        if (changes != null) {
+            changes.record(employee, day, null, shift);
+        }
+        return true;
+    }
+    
+    private Shift unassign(Employee employee, Day day, ScheduleChangeSet changes) {
+        // Remove an employee's assignment on a day, if any; returns the shift they left
+        Shift shift = employee.unassignShift(day);
+        if (shift != null) {
+            this.schedule.removeEmployeeFromShift(day, shift, employee);
+            changes.record(employee, day, shift, null);
+        }
+        return shift;
     }
     
     public void run() {
@@ -163,6 +393,7 @@ public class EmployeeScheduler {
             return;
         }
         
+        System.out.println("\nGenerating schedule...");
         this.assignEmployees();
         this.schedule.displaySchedule();
         
@@ -175,6 +406,78 @@ public class EmployeeScheduler {
         
         this.scanner.close();
     }
+    
+    public void runGenerated(int count, long seed) {
+        // Non-interactive run on a generated roster, timing the scheduling passes
+        this.generateEmployees(count, seed);
+        this.setSeed(seed);
+        
+        System.out.println("\nGenerating schedule...");
+        long start = System.nanoTime();
+        this.assignEmployees();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        this.schedule.displaySchedule();
+        
+        // Display summary; the roster is too large to list everyone
+        int scheduled = 0;
+        for (Employee employee : this.employees) {
+            if (employee.getDaysWorked() > 0) {
+                scheduled++;
+            }
+        }
+        System.out.println("\nSUMMARY:");
+        System.out.println("Total employees: " + this.employees.size() + " (seed " + seed + ")");
+        System.out.println("Employees scheduled: " + scheduled);
+        System.out.println("Understaffed shifts: " + this.schedule.getUnderstaffedShifts().length
+            + " (" + this.schedule.getStaffingShortfall() + " employees short)");
+        System.out.println("Preference score: " + this.getPreferenceScore() + " (" + this.getFirstChoiceCount()
+            + " of " + this.getAssignmentCount() + " shifts are first choices, " + this.solver.name().toLowerCase() + " solver)");
+        System.out.println("Scheduling time: " + elapsedMillis + " ms");
+    }
+    
+    // Schedule quality, for comparing solvers
+    public int getAssignmentCount() {
+        int assignments = 0;
+        for (Employee employee : this.employees) {
+            assignments += employee.getDaysWorked();
+        }
+        return assignments;
+    }
+    
+    public int getPreferenceScore() {
+        // Sum of the preference scores of every assigned shift (see Employee.getPreferenceScore)
+        int score = 0;
+        for (Employee employee : this.employees) {
+            for (Day day : Schedule.DAYS) {
+                Shift shift = employee.getAssignedShift(day);
+                if (shift != null) {
+                    score += employee.getPreferenceScore(day, shift);
+                }
+            }
+        }
+        return score;
+    }
+    
+    public int getFirstChoiceCount() {
+        int firstChoices = 0;
+        for (Employee employee : this.employees) {
+            for (Day day : Schedule.DAYS) {
+                Shift shift = employee.getAssignedShift(day);
+                if (shift != null && employee.getPreferenceRank(day, shift) == 0) {
+                    firstChoices++;
+                }
+            }
+        }
+        return firstChoices;
+    }
+    
+    public Schedule getSchedule() {
+        return this.schedule;
+    }
+    
+    public List<Employee> getEmployees() {
+        return Collections.unmodifiableList(this.employees);
+    }
 }
 
 
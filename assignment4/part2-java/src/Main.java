@@ -1,3 +1,5 @@
+import java.util.*;
+
 // ============================================================================
 // MAIN PROGRAM ENTRY POINT
 // ============================================================================
@@ -5,9 +7,55 @@
 public class Main {
     public static void main(String[] args) {
         // Entry point of the program
+        // Usage: java Main [--solver=S] [--threads=T]                          (interactive)
+        //        java Main --generate=N [--seed=S] [--solver=S] [--threads=T]  (random roster of N employees)
+        //        java Main --benchmark[=N1,N2,...] [--seed=S] [--threads=T]    (compare the solvers)
+        // Solvers: greedy (default), optimal, parallel; --threads is the parallel solver's
+        // thread count and defaults to the number of processors
+        // The seed also fixes the random picks used to fill understaffed shifts and the
+        // parallel solver's day budgets
+        String seed = getOption(args, "seed");
+        long rosterSeed = seed != null ? Long.parseLong(seed) : 42L;
+        String threads = getOption(args, "threads");
+        int parallelism = threads != null ? Integer.parseInt(threads) : Runtime.getRuntime().availableProcessors();
+        String benchmark = getOption(args, "benchmark");
+        if (benchmark != null || Arrays.asList(args).contains("--benchmark")) {
+            String[] sizeList = (benchmark != null ? benchmark : "10,20,30,100,1000,10000,50000").split(",");
+            int[] sizes = new int[sizeList.length];
+            for (int i = 0; i < sizeList.length; i++) {
+                sizes[i] = Integer.parseInt(sizeList[i].trim());
+            }
+            SchedulerBenchmark.run(sizes, rosterSeed, parallelism);
+            return;
+        }
+        
         EmployeeScheduler scheduler = new EmployeeScheduler();
+        String solver = getOption(args, "solver");
+        if (solver != null) {
+            scheduler.setSolver(EmployeeScheduler.Solver.valueOf(solver.toUpperCase()));
+        }
+        if (seed != null) {
+            scheduler.setSeed(rosterSeed);
+        }
+        scheduler.setParallelism(parallelism);
+        String generate = getOption(args, "generate");
+        if (generate != null) {
+            scheduler.runGenerated(Integer.parseInt(generate), rosterSeed);
+            return;
+        }
         scheduler.run();
     }
+    
+    private static String getOption(String[] args, String name) {
+        // Value of a --name=value argument, or null if it was not given
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return null;
+    }
 }
 
 
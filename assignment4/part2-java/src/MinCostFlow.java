@@ -0,0 +1,154 @@
+import java.util.*;
+
+// ============================================================================
+// MIN-COST FLOW CLASS
+// ============================================================================
+
+public class MinCostFlow {
+    // Edges are stored in parallel arrays; edge e and its reverse edge e ^ 1 are added together
+    private int nodeCount;
+    private int edgeCount;
+    private int[] head; // [node] -> first outgoing edge, -1 if none
+    private int[] next; // [edge] -> next edge leaving the same node
+    private int[] to;
+    private int[] capacity; // remaining capacity
+    private long[] cost;
+    
+    public MinCostFlow(int nodeCount) {
+        this.nodeCount = nodeCount;
+        this.edgeCount = 0;
+        this.head = new int[nodeCount];
+        Arrays.fill(this.head, -1);
+        this.next = new int[16];
+        this.to = new int[16];
+        this.capacity = new int[16];
+        this.cost = new long[16];
+    }
+    
+    public int addEdge(int from, int target, int edgeCapacity, long edgeCost) {
+        // Add a directed edge and return its index, for reading its flow after solve()
+        int edge = this.edgeCount;
+        this.addHalfEdge(from, target, edgeCapacity, edgeCost);
+        this.addHalfEdge(target, from, 0, -edgeCost);
+        return edge;
+    }
+    
+    public int getFlow(int edge) {
+        // Flow on an edge is the capacity gained by its reverse edge
+        return this.capacity[edge ^ 1];
+    }
+    
+    public long solve(int source, int sink) {
+        // Successive shortest paths: keep pushing flow along the cheapest path while it
+        // has negative cost. The cost of the k-th path never decreases, so stopping at the
+        // first non-negative one gives the cheapest flow of any size, not the maximum flow.
+        // Returns the total cost of that flow.
+        long[] potential = this.initialPotentials(source);
+        long[] distance = new long[this.nodeCount];
+        int[] parentEdge = new int[this.nodeCount];
+        long totalCost = 0;
+        
+        while (true) {
+            this.shortestPaths(source, potential, distance, parentEdge);
+            if (distance[sink] == Long.MAX_VALUE) {
+                break;
+            }
+            // Reduced distances plus potentials give the real path cost
+            long pathCost = distance[sink] + potential[sink] - potential[source];
+            if (pathCost >= 0) {
+                break;
+            }
+            for (int node = 0; node < this.nodeCount; node++) {
+                if (distance[node] != Long.MAX_VALUE) {
+                    potential[node] += distance[node];
+                }
+            }
+            
+            // Push as much as the tightest edge on the path allows
+            int pushed = Integer.MAX_VALUE;
+            for (int node = sink; node != source; node = this.to[parentEdge[node] ^ 1]) {
+                pushed = Math.min(pushed, this.capacity[parentEdge[node]]);
+            }
+            for (int node = sink; node != source; node = this.to[parentEdge[node] ^ 1]) {
+                this.capacity[parentEdge[node]] -= pushed;
+                this.capacity[parentEdge[node] ^ 1] += pushed;
+            }
+            totalCost += pathCost * pushed;
+        }
+        return totalCost;
+    }
+    
+    private long[] initialPotentials(int source) {
+        // Bellman-Ford (queue-based) distances from the source, since edge costs may be negative
+        // Nodes the source cannot reach keep potential 0; they never join a path anyway
+        long[] potential = new long[this.nodeCount];
+        Arrays.fill(potential, Long.MAX_VALUE);
+        potential[source] = 0;
+        boolean[] queued = new boolean[this.nodeCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(source);
+        queued[source] = true;
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            queued[node] = false;
+            for (int edge = this.head[node]; edge != -1; edge = this.next[edge]) {
+                if (this.capacity[edge] > 0 && potential[node] + this.cost[edge] < potential[this.to[edge]]) {
+                    potential[this.to[edge]] = potential[node] + this.cost[edge];
+                    if (!queued[this.to[edge]]) {
+                        queue.add(this.to[edge]);
+                        queued[this.to[edge]] = true;
+                    }
+                }
+            }
+        }
+        for (int node = 0; node < this.nodeCount; node++) {
+            if (potential[node] == Long.MAX_VALUE) {
+                potential[node] = 0;
+            }
+        }
+        return potential;
+    }
+    
+    private void shortestPaths(int source, long[] potential, long[] distance, int[] parentEdge) {
+        // Dijkstra on costs reduced by the potentials, which keeps every residual edge non-negative
+        Arrays.fill(distance, Long.MAX_VALUE);
+        distance[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[]{0, source});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int node = (int) entry[1];
+            if (entry[0] > distance[node]) {
+                continue;
+            }
+            for (int edge = this.head[node]; edge != -1; edge = this.next[edge]) {
+                if (this.capacity[edge] == 0) {
+                    continue;
+                }
+                int target = this.to[edge];
+                long reduced = distance[node] + this.cost[edge] + potential[node] - potential[target];
+                if (reduced < distance[target]) {
+                    distance[target] = reduced;
+                    parentEdge[target] = edge;
+                    queue.add(new long[]{reduced, target});
+                }
+            }
+        }
+    }
+    
+    private void addHalfEdge(int from, int target, int edgeCapacity, long edgeCost) {
+        if (this.edgeCount == this.to.length) {
+            int size = this.edgeCount * 2;
+            this.next = Arrays.copyOf(this.next, size);
+            this.to = Arrays.copyOf(this.to, size);
+            this.capacity = Arrays.copyOf(this.capacity, size);
+            this.cost = Arrays.copyOf(this.cost, size);
+        }
+        this.next[this.edgeCount] = this.head[from];
+        this.to[this.edgeCount] = target;
+        this.capacity[this.edgeCount] = edgeCapacity;
+        this.cost[this.edgeCount] = edgeCost;
+        this.head[from] = this.edgeCount;
+        this.edgeCount++;
+    }
+}
@@ -0,0 +1,167 @@
+import java.util.*;
+
+// ============================================================================
+// OPTIMAL SCHEDULER CLASS
+// ============================================================================
+
+public class OptimalScheduler {
+    // Solves the week as a min-cost flow:
+    //
+    //   source -> employee      capacity = days the employee may still work, cost 0
+    //   employee -> (emp, day)  capacity 1 (one shift per day), cost 0
+    //   (emp, day) -> slot      capacity 1, cost = -preference score
+    //   slot -> sink            capacity = shortfall below the minimum, cost = -staffing bonus
+    //   slot -> sink            capacity = remaining room up to the maximum, cost 0
+    //
+    // The staffing bonus outweighs any sum of preference scores, so the cheapest flow first
+    // fills as many of the places missing below the minimum as possible (the smallest total
+    // shortfall, which may leave more shifts short than spreading staff thinly would), then
+    // maximizes total satisfaction.
+    // Unranked shifts score 0 and are only used to reach the minimum, as in the greedy pass.
+    //
+    // Only the best candidates of each slot enter the network: with room for K more
+    // assignments in total, an optimal schedule never needs an employee outside a slot's
+    // top K (the other K - 1 assignments can block at most K - 1 of them), so the network
+    // stays small however large the roster is.
+    
+    private List<Employee> employees;
+    private Schedule schedule;
+    
+    public OptimalScheduler(List<Employee> employees, Schedule schedule) {
+        this.employees = employees;
+        this.schedule = schedule;
+    }
+    
+    public int assignEmployees() {
+        // Add the optimal set of assignments to the employees and the schedule
+        // Existing assignments are kept; returns the number of assignments added
+        int[] room = new int[Schedule.SLOT_COUNT];
+        int[] shortfall = new int[Schedule.SLOT_COUNT];
+        int totalRoom = 0;
+        for (int slot = 0; slot < Schedule.SLOT_COUNT; slot++) {
+            Day day = Schedule.dayOf(slot);
+            Shift shift = Schedule.shiftOf(slot);
+            int count = this.schedule.getShiftCount(day, shift);
+            room[slot] = Math.max(0, this.schedule.getShiftCapacity(day, shift) - count);
+            shortfall[slot] = Math.max(0, this.schedule.getRequiredStaff(day, shift) - count);
+            totalRoom += room[slot];
+        }
+        if (totalRoom == 0) {
+            return 0;
+        }
+        
+        List<List<Employee>> candidates = this.selectCandidates(totalRoom);
+        
+        // Number the nodes: source, sink, one per slot, then for each candidate employee
+        // one employee node followed by its seven (employee, day) nodes
+        int source = 0;
+        int sink = 1;
+        int firstSlotNode = 2;
+        Map<Employee, Integer> employeeNodes = new LinkedHashMap<>();
+        int nodeCount = firstSlotNode + Schedule.SLOT_COUNT;
+        for (List<Employee> slotCandidates : candidates) {
+            for (Employee employee : slotCandidates) {
+                if (!employeeNodes.containsKey(employee)) {
+                    employeeNodes.put(employee, nodeCount);
+                    nodeCount += 1 + Day.COUNT;
+                }
+            }
+        }
+        
+        MinCostFlow flow = new MinCostFlow(nodeCount);
+        long staffingBonus = (long) Shift.COUNT * totalRoom + 1;
+        for (Map.Entry<Employee, Integer> entry : employeeNodes.entrySet()) {
+            Employee employee = entry.getKey();
+            int node = entry.getValue();
+            flow.addEdge(source, node, employee.getMaxDays() - employee.getDaysWorked(), 0);
+            for (Day day : Schedule.DAYS) {
+                flow.addEdge(node, node + 1 + day.ordinal(), 1, 0);
+            }
+        }
+        for (int slot = 0; slot < Schedule.SLOT_COUNT; slot++) {
+            int slotNode = firstSlotNode + slot;
+            if (shortfall[slot] > 0) {
+                flow.addEdge(slotNode, sink, shortfall[slot], -staffingBonus);
+            }
+            if (room[slot] > shortfall[slot]) {
+                flow.addEdge(slotNode, sink, room[slot] - shortfall[slot], 0);
+            }
+        }
+        int[] assignmentEdges = new int[totalRoom * Schedule.SLOT_COUNT];
+        int[] assignmentSlots = new int[totalRoom * Schedule.SLOT_COUNT];
+        List<Employee> assignmentEmployees = new ArrayList<>();
+        int edgeCount = 0;
+        for (int slot = 0; slot < Schedule.SLOT_COUNT; slot++) {
+            Day day = Schedule.dayOf(slot);
+            Shift shift = Schedule.shiftOf(slot);
+            for (Employee employee : candidates.get(slot)) {
+                int dayNode = employeeNodes.get(employee) + 1 + day.ordinal();
+                assignmentEdges[edgeCount] = flow.addEdge(dayNode, firstSlotNode + slot, 1,
+                    -employee.getPreferenceScore(day, shift));
+                assignmentSlots[edgeCount] = slot;
+                assignmentEmployees.add(employee);
+                edgeCount++;
+            }
+        }
+        
+        flow.solve(source, sink);
+        
+        // Every candidate edge carrying flow is an assignment
+        int assigned = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            if (flow.getFlow(assignmentEdges[i]) > 0) {
+                Employee employee = assignmentEmployees.get(i);
+                Day day = Schedule.dayOf(assignmentSlots[i]);
+                Shift shift = Schedule.shiftOf(assignmentSlots[i]);
+                if (employee.assignShift(day, shift)) {
+                    this.schedule.addEmployeeToShift(day, shift, employee);
+                    assigned++;
+                }
+            }
+        }
+        return assigned;
+    }
+    
+    private List<List<Employee>> selectCandidates(int limit) {
+        // Pick up to `limit` available employees per slot, best preference score first and
+        // roster order among equal scores, in one pass over the roster
+        // buckets[slot][score] holds the employees with that score, each capped at the limit
+        int levels = Shift.COUNT + 1;
+        List<List<List<Employee>>> buckets = new ArrayList<>();
+        for (int slot = 0; slot < Schedule.SLOT_COUNT; slot++) {
+            List<List<Employee>> slotBuckets = new ArrayList<>();
+            for (int score = 0; score < levels; score++) {
+                slotBuckets.add(new ArrayList<>());
+            }
+            buckets.add(slotBuckets);
+        }
+        for (Employee employee : this.employees) {
+            if (employee.getDaysWorked() >= employee.getMaxDays()) {
+                continue;
+            }
+            for (Day day : Schedule.DAYS) {
+                if (!employee.isAvailable(day)) {
+                    continue;
+                }
+                for (Shift shift : Schedule.SHIFTS) {
+                    List<Employee> bucket = buckets.get(Schedule.slot(day, shift))
+                        .get(employee.getPreferenceScore(day, shift));
+                    if (bucket.size() < limit) {
+                        bucket.add(employee);
+                    }
+                }
+            }
+        }
+        
+        List<List<Employee>> candidates = new ArrayList<>();
+        for (int slot = 0; slot < Schedule.SLOT_COUNT; slot++) {
+            List<Employee> slotCandidates = new ArrayList<>();
+            for (int score = levels - 1; score >= 0 && slotCandidates.size() < limit; score--) {
+                List<Employee> bucket = buckets.get(slot).get(score);
+                slotCandidates.addAll(bucket.subList(0, Math.min(bucket.size(), limit - slotCandidates.size())));
+            }
+            candidates.add(slotCandidates);
+        }
+        return candidates;
+    }
+}
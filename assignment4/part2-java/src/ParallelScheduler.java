@@ -0,0 +1,204 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// ============================================================================
+// PARALLEL SCHEDULER CLASS
+// ============================================================================
+
+public class ParallelScheduler {
+    // Schedules the seven days concurrently on a ForkJoinPool. The only thing linking the
+    // days is each employee's maxDays budget, so it is settled before the days are split:
+    //
+    //   1. Budget (parallel over roster slices): an employee who wants more days than they
+    //      may still work is allotted a random subset of those days, drawn from a generator
+    //      seeded by the run seed and the employee id
+    //   2. Days (one task per day): the greedy first-choice and other-choice passes, run
+    //      over the employees allotted that day; no state is shared between days
+    //   3. Merge: the day results are applied to the employees and the schedule in day order
+    //   4. Repair: budget left over because an allotted day was already full is spent on the
+    //      wanted days that were not allotted, in roster order
+    //
+    // Every step is deterministic, so the same roster and seed give the same schedule
+    // whatever the number of threads.
+    
+    private static final int EMPLOYEES_PER_TASK = 4096; // roster slice handled by one budget task
+    
+    private List<Employee> employees;
+    private Schedule schedule;
+    private ForkJoinPool pool;
+    private long seed;
+    
+    public ParallelScheduler(List<Employee> employees, Schedule schedule, ForkJoinPool pool, long seed) {
+        this.employees = employees;
+        this.schedule = schedule;
+        this.pool = pool;
+        this.seed = seed;
+    }
+    
+    public int assignEmployees() {
+        // Add the assignments to the employees and the schedule; returns how many were added
+        int[] allotted = new int[this.employees.size()]; // [id] -> bit per allotted day
+        this.pool.invoke(new BudgetTask(allotted, 0, this.employees.size()));
+        
+        List<Callable<int[]>> dayTasks = new ArrayList<>();
+        for (Day day : Schedule.DAYS) {
+            dayTasks.add(() -> this.scheduleDay(day, allotted));
+        }
+        List<Future<int[]>> dayResults = this.pool.invokeAll(dayTasks);
+        
+        // Merge in day order
+        int assigned = 0;
+        for (Day day : Schedule.DAYS) {
+            int[] picks;
+            try {
+                picks = dayResults.get(day.ordinal()).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while scheduling " + day, e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Scheduling " + day + " failed", e.getCause());
+            }
+            for (int pick : picks) {
+                Employee employee = this.employees.get(pick / Shift.COUNT);
+                Shift shift = Schedule.SHIFTS[pick % Shift.COUNT];
+                if (employee.assignShift(day, shift)) {
+                    this.schedule.addEmployeeToShift(day, shift, employee);
+                    assigned++;
+                }
+            }
+        }
+        
+        return assigned + this.repair(allotted);
+    }
+    
+    private int[] scheduleDay(Day day, int[] allotted) {
+        // Greedy passes for one day over the employees allotted to it, in roster order
+        // Returns the picks packed as id * Shift.COUNT + shift
+        int dayBit = 1 << day.ordinal();
+        int[] room = new int[Shift.COUNT];
+        int totalRoom = 0;
+        for (Shift shift : Schedule.SHIFTS) {
+            room[shift.ordinal()] = Math.max(0, this.schedule.getShiftCapacity(day, shift) - this.schedule.getShiftCount(day, shift));
+            totalRoom += room[shift.ordinal()];
+        }
+        int[] picks = new int[totalRoom];
+        int pickCount = 0;
+        BitSet picked = new BitSet(this.employees.size());
+        
+        // First pass: first preferences only
+        for (int id = 0; id < allotted.length && pickCount < totalRoom; id++) {
+            if ((allotted[id] & dayBit) == 0) {
+                continue;
+            }
+            Shift first = this.employees.get(id).getPreferredShifts(day)[0];
+            if (room[first.ordinal()] > 0) {
+                room[first.ordinal()]--;
+                picks[pickCount++] = id * Shift.COUNT + first.ordinal();
+                picked.set(id);
+            }
+        }
+        
+        // Second pass: every preference in order
+        for (int id = 0; id < allotted.length && pickCount < totalRoom; id++) {
+            if ((allotted[id] & dayBit) == 0 || picked.get(id)) {
+                continue;
+            }
+            for (Shift shift : this.employees.get(id).getPreferredShifts(day)) {
+                if (room[shift.ordinal()] > 0) {
+                    room[shift.ordinal()]--;
+                    picks[pickCount++] = id * Shift.COUNT + shift.ordinal();
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(picks, pickCount);
+    }
+    
+    private int repair(int[] allotted) {
+        // Spend leftover budget on wanted days that were not allotted, like the greedy second pass
+        boolean[] dayFull = new boolean[Day.COUNT];
+        int assigned = 0;
+        for (Day day : Schedule.DAYS) {
+            dayFull[day.ordinal()] = this.isDayFull(day);
+        }
+        for (Employee employee : this.employees) {
+            for (Day day : Schedule.DAYS) {
+                if (dayFull[day.ordinal()] || (allotted[employee.getId()] & (1 << day.ordinal())) != 0
+                        || !employee.isAvailable(day)) {
+                    continue;
+                }
+                for (Shift shift : employee.getPreferredShifts(day)) {
+                    if (!this.schedule.isShiftFull(day, shift)) {
+                        if (employee.assignShift(day, shift)) {
+                            this.schedule.addEmployeeToShift(day, shift, employee);
+                            dayFull[day.ordinal()] = this.isDayFull(day);
+                            assigned++;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return assigned;
+    }
+    
+    private boolean isDayFull(Day day) {
+        for (Shift shift : Schedule.SHIFTS) {
+            if (!this.schedule.isShiftFull(day, shift)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private class BudgetTask extends RecursiveAction {
+        // Decides the allotted days of the employees in [from, to)
+        private static final long serialVersionUID = 1L;
+        
+        private int[] allotted;
+        private int from;
+        private int to;
+        
+        BudgetTask(int[] allotted, int from, int to) {
+            this.allotted = allotted;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (this.to - this.from > EMPLOYEES_PER_TASK) {
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new BudgetTask(this.allotted, this.from, mid), new BudgetTask(this.allotted, mid, this.to));
+                return;
+            }
+            Day[] wanted = new Day[Day.COUNT];
+            for (int id = this.from; id < this.to; id++) {
+                Employee employee = employees.get(id);
+                int wantedCount = 0;
+                for (Day day : Schedule.DAYS) {
+                    if (employee.isAvailable(day) && employee.getPreferredShifts(day).length > 0) {
+                        wanted[wantedCount++] = day;
+                    }
+                }
+                int budget = employee.getMaxDays() - employee.getDaysWorked();
+                if (wantedCount > budget) {
+                    // Partial shuffle: the first `budget` entries become a random subset
+                    SplittableRandom random = new SplittableRandom(seed ^ (id * 0x9E3779B97F4A7C15L));
+                    for (int i = 0; i < budget; i++) {
+                        int j = i + random.nextInt(wantedCount - i);
+                        Day swap = wanted[i];
+                        wanted[i] = wanted[j];
+                        wanted[j] = swap;
+                    }
+                    wantedCount = Math.max(0, budget);
+                }
+                int mask = 0;
+                for (int i = 0; i < wantedCount; i++) {
+                    mask |= 1 << wanted[i].ordinal();
+                }
+                this.allotted[id] = mask;
+            }
+        }
+    }
+}
@@ -5,48 +5,128 @@ import java.util.*;
 // ============================================================================
 
 public class Schedule {
-    public static final String[] DAYS = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
-    public static final String[] SHIFTS = {"morning", "afternoon", "evening"};
+    public static final Day[] DAYS = Day.values();
+    public static final Shift[] SHIFTS = Shift.values();
+    public static final int SLOT_COUNT = Day.COUNT * Shift.COUNT; // one slot per day/shift pair
     
-    private Map<String, Map<String, List<Employee>>> schedule;
+    private int[] shiftCounts; // [slot] - number of employees assigned to each shift
+    private List<List<Employee>> shiftRosters; // [slot] - employees assigned to each shift, for display
+    private BitSet[] dayOccupancy; // [day] - bit set for the id of every employee working that day
+    private int[] shiftCapacities; // [slot] - maximum number of employees on each shift
     private int minEmployeesPerShift;
+    private int maxEmployeesPerShift;
     
     public Schedule() {
-        this.schedule = new HashMap<>();
+        this.shiftCounts = new int[SLOT_COUNT];
+        this.shiftRosters = new ArrayList<>(SLOT_COUNT);
+        this.dayOccupancy = new BitSet[Day.COUNT];
         this.minEmployeesPerShift = 2;
+        this.maxEmployeesPerShift = 4;
+        this.shiftCapacities = new int[SLOT_COUNT];
+        Arrays.fill(this.shiftCapacities, this.maxEmployeesPerShift);
         
         // Initialize schedule structure
-        for (String day : DAYS) {
-            Map<String, List<Employee>> daySchedule = new HashMap<>();
-            for (String shift : SHIFTS) {
-                daySchedule.put(shift, new ArrayList<>());
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            this.shiftRosters.add(new ArrayList<>());
+        }
+        for (int day = 0; day < Day.COUNT; day++) {
+            this.dayOccupancy[day] = new BitSet();
+        }
+    }
+    
+    public static int slot(Day day, Shift shift) {
+        // Flat index of a day/shift pair: slots are numbered day by day, shifts in order
+        return day.ordinal() * Shift.COUNT + shift.ordinal();
+    }
+    
+    public static Day dayOf(int slot) {
+        return DAYS[slot / Shift.COUNT];
+    }
+    
+    public static Shift shiftOf(int slot) {
+        return SHIFTS[slot % Shift.COUNT];
+    }
+    
+    public boolean addEmployeeToShift(Day day, Shift shift, Employee employee) {
+        // Add an employee to a specific shift, unless they already work that day
+        BitSet working = this.dayOccupancy[day.ordinal()];
+        if (working.get(employee.getId())) {
+            return false;
+        }
+        working.set(employee.getId());
+        int slot = slot(day, shift);
+        this.shiftCounts[slot]++;
+        this.shiftRosters.get(slot).add(employee);
+        return true;
+    }
+    
+    public boolean removeEmployeeFromShift(Day day, Shift shift, Employee employee) {
+        // Remove an employee from a specific shift, if they work it
+        int slot = slot(day, shift);
+        if (!this.shiftRosters.get(slot).remove(employee)) {
+            return false;
+        }
+        this.dayOccupancy[day.ordinal()].clear(employee.getId());
+        this.shiftCounts[slot]--;
+        return true;
+    }
+    
+    public void renumberEmployee(int oldId, int newId) {
+        // Move an employee's occupancy bits to a new id; nobody may hold the new id on a day they work
+        for (BitSet working : this.dayOccupancy) {
+            if (working.get(oldId)) {
+                working.clear(oldId);
+                working.set(newId);
             }
-            this.schedule.put(day, daySchedule);
         }
     }
     
-    public boolean addEmployeeToShift(String day, String shift, Employee employee) {
-        // Add an employee to a specific shift
-        if (this.schedule.containsKey(day) && this.schedule.get(day).containsKey(shift)) {
-            this.schedule.get(day).get(shift).add(employee);
-            return true;
+    public void setShiftCapacity(Day day, Shift shift, int capacity) {
+        // Change the maximum number of employees on one shift; does not remove anyone already on it
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Shift capacity cannot be negative: " + capacity);
         }
-        return false;
+        this.shiftCapacities[slot(day, shift)] = capacity;
+    }
+    
+    public int getShiftCapacity(Day day, Shift shift) {
+        // Get the maximum number of employees allowed on a specific shift
+        return this.shiftCapacities[slot(day, shift)];
     }
     
-    public int getShiftCount(String day, String shift) {
+    public int getRequiredStaff(Day day, Shift shift) {
+        // Get the number of employees a shift needs: the minimum, unless its capacity is lower
+        return this.getRequiredStaff(slot(day, shift));
+    }
+    
+    public List<Employee> getShiftRoster(Day day, Shift shift) {
+        // Get the employees on a specific shift, in the order they were added
+        return Collections.unmodifiableList(this.shiftRosters.get(slot(day, shift)));
+    }
+    
+    public int getShiftCount(Day day, Shift shift) {
         // Get the number of employees assigned to a specific shift
-        return this.schedule.getOrDefault(day, new HashMap<>()).getOrDefault(shift, new ArrayList<>()).size();
+        return this.shiftCounts[slot(day, shift)];
     }
     
-    public boolean isShiftFull(String day, String shift, int maxPerShift) {
+    public boolean isShiftFull(Day day, Shift shift, int maxPerShift) {
         // Check if a shift has reached maximum capacity
         return this.getShiftCount(day, shift) >= maxPerShift;
     }
     
-    public boolean isShiftFull(String day, String shift) {
-        // Check if a shift has reached maximum capacity (default max = 4)
-        return this.isShiftFull(day, shift, 4);
+    public boolean isShiftFull(Day day, Shift shift) {
+        // Check if a shift has reached its capacity (default max = 4, see setShiftCapacity)
+        return this.isShiftFull(day, shift, this.shiftCapacities[slot(day, shift)]);
+    }
+    
+    public boolean isWorking(Day day, Employee employee) {
+        // Check if an employee is assigned to any shift on a specific day
+        return this.dayOccupancy[day.ordinal()].get(employee.getId());
+    }
+    
+    public int getStaffCount(Day day) {
+        // Get the number of employees working on a specific day
+        return this.dayOccupancy[day.ordinal()].cardinality();
     }
     
     public int getMinEmployeesPerShift() {
@@ -54,41 +134,65 @@ public class Schedule {
         return this.minEmployeesPerShift;
     }
     
-    public List<String[]> getUnderstaffedShifts() {
-        // Get list of shifts that need more employees
-        List<String[]> understaffed = new ArrayList<>();
-        for (String day : DAYS) {
-            for (String shift : SHIFTS) {
-                if (this.getShiftCount(day, shift) < this.minEmployeesPerShift) {
-                    understaffed.add(new String[]{day, shift});
-                }
+    public int getMaxEmployeesPerShift() {
+        // Get the default maximum number of employees per shift (see getShiftCapacity)
+        return this.maxEmployeesPerShift;
+    }
+    
+    public int[] getUnderstaffedShifts() {
+        // Get the slots of shifts that need more employees (see dayOf/shiftOf)
+        int count = 0;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (this.shiftCounts[slot] < this.getRequiredStaff(slot)) {
+                count++;
+            }
+        }
+        int[] understaffed = new int[count];
+        int next = 0;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (this.shiftCounts[slot] < this.getRequiredStaff(slot)) {
+                understaffed[next++] = slot;
             }
         }
         return understaffed;
     }
     
+    public int getStaffingShortfall() {
+        // Get the total number of employees missing below the minimum, over all shifts
+        int shortfall = 0;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            shortfall += Math.max(0, this.getRequiredStaff(slot) - this.shiftCounts[slot]);
+        }
+        return shortfall;
+    }
+    
+    private int getRequiredStaff(int slot) {
+        return Math.min(this.minEmployeesPerShift, this.shiftCapacities[slot]);
+    }
+    
     public void displaySchedule() {
         // Display the weekly schedule in a readable format
         System.out.println("\n" + "=".repeat(80));
         System.out.println("WEEKLY EMPLOYEE SCHEDULE");
         System.out.println("=".repeat(80));
         
-        for (String day : DAYS) {
-            System.out.println("\n" + day.toUpperCase());
+        for (Day day : DAYS) {
+            System.out.println("\n" + day.getDisplayName().toUpperCase());
             System.out.println("-".repeat(40));
-            for (String shift : SHIFTS) {
-                List<Employee> employees = this.schedule.get(day).get(shift);
+            for (Shift shift : SHIFTS) {
+                String shiftName = shift.getDisplayName();
+                List<Employee> employees = this.shiftRosters.get(slot(day, shift));
                 if (!employees.isEmpty()) {
                     List<String> employeeNames = new ArrayList<>();
                     for (Employee emp : employees) {
                         employeeNames.add(emp.getName());
                     }
-                    System.out.printf("  %10s: %s%n", 
-                        shift.substring(0, 1).toUpperCase() + shift.substring(1),
+                    System.out.printf("  %10s: %s%n",
+                        shiftName.substring(0, 1).toUpperCase() + shiftName.substring(1),
                         String.join(", ", employeeNames));
                 } else {
                     System.out.printf("  %10s: No employees assigned%n",
-                        shift.substring(0, 1).toUpperCase() + shift.substring(1));
+                        shiftName.substring(0, 1).toUpperCase() + shiftName.substring(1));
                 }
             }
         }
@@ -0,0 +1,96 @@
+import java.util.*;
+
+// ============================================================================
+// SCHEDULE CHANGE SET CLASS
+// ============================================================================
+
+public class ScheduleChangeSet {
+    // The net effect of one incremental update: for every employee and day whose assignment
+    // differs afterwards, the shift before and after. An employee moved out of a shift and
+    // back into it during the repair does not appear.
+    
+    public static class Change {
+        private Employee employee;
+        private Day day;
+        private Shift before; // null if the employee did not work that day
+        private Shift after; // null if the employee no longer works that day
+        
+        private Change(Employee employee, Day day, Shift before) {
+            this.employee = employee;
+            this.day = day;
+            this.before = before;
+        }
+        
+        public Employee getEmployee() {
+            return this.employee;
+        }
+        
+        public Day getDay() {
+            return this.day;
+        }
+        
+        public Shift getBefore() {
+            return this.before;
+        }
+        
+        public Shift getAfter() {
+            return this.after;
+        }
+        
+        @Override
+        public String toString() {
+            if (this.before == null) {
+                return this.employee.getName() + ": added to " + this.day + " " + this.after;
+            }
+            if (this.after == null) {
+                return this.employee.getName() + ": removed from " + this.day + " " + this.before;
+            }
+            return this.employee.getName() + ": " + this.day + " " + this.before + " -> " + this.after;
+        }
+    }
+    
+    private Map<Employee, Change[]> changes; // employee -> [day] -> change, null if unchanged
+    
+    public ScheduleChangeSet() {
+        this.changes = new LinkedHashMap<>();
+    }
+    
+    public void record(Employee employee, Day day, Shift before, Shift after) {
+        // Note that an employee's shift on a day went from `before` to `after` (null = not working)
+        Change[] days = this.changes.computeIfAbsent(employee, e -> new Change[Day.COUNT]);
+        if (days[day.ordinal()] == null) {
+            days[day.ordinal()] = new Change(employee, day, before);
+        }
+        days[day.ordinal()].after = after;
+    }
+    
+    public List<Change> getChanges() {
+        // Net changes, grouped by employee in the order they were first touched
+        List<Change> result = new ArrayList<>();
+        for (Change[] days : this.changes.values()) {
+            for (Change change : days) {
+                if (change != null && change.before != change.after) {
+                    result.add(change);
+                }
+            }
+        }
+        return result;
+    }
+    
+    public boolean isEmpty() {
+        return this.getChanges().isEmpty();
+    }
+    
+    public void displayChanges() {
+        // Print every net change, one per line
+        List<Change> netChanges = this.getChanges();
+        if (netChanges.isEmpty()) {
+            System.out.println("No schedule changes");
+            return;
+        }
+        System.out.println("Schedule changes (" + netChanges.size() + "):");
+        for (Change change : netChanges) {
+            System.out.println("  " + change);
+        }
+    }
+}
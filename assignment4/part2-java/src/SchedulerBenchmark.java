@@ -0,0 +1,92 @@
+import java.util.*;
+
+// ============================================================================
+// SCHEDULER BENCHMARK CLASS
+// ============================================================================
+
+public class SchedulerBenchmark {
+    private static final int RUNS = 3; // best of RUNS, so the first run's JIT warm-up is not timed
+    private static final int UPDATES = 1000; // preference updates timed per roster size
+    
+    public static void run(int[] rosterSizes, long seed, int parallelism) {
+        // Compare the solvers on generated rosters: runtime and schedule quality
+        // Shortfall counts employees missing below the per-shift minimum; score is the sum of
+        // preference scores (3 for a first choice down to 0 for an unranked shift)
+        System.out.println("Scheduler benchmark (seed " + seed + ", best of " + RUNS + " runs, "
+            + parallelism + " threads for the parallel solver)");
+        System.out.println("=".repeat(80));
+        System.out.printf("%10s  %-8s %10s %9s %10s %7s %14s%n",
+            "Employees", "Solver", "Time (ms)", "Assigned", "Shortfall", "Score", "First choices");
+        System.out.println("-".repeat(80));
+        
+        for (int size : rosterSizes) {
+            for (EmployeeScheduler.Solver solver : EmployeeScheduler.Solver.values()) {
+                long bestNanos = Long.MAX_VALUE;
+                EmployeeScheduler scheduler = null;
+                for (int run = 0; run < RUNS; run++) {
+                    // Scheduling changes the employees, so every run starts from a fresh roster
+                    scheduler = new EmployeeScheduler();
+                    scheduler.setSolver(solver);
+                    scheduler.setSeed(seed);
+                    scheduler.setParallelism(parallelism);
+                    scheduler.generateEmployees(size, seed);
+                    long start = System.nanoTime();
+                    scheduler.assignEmployees();
+                    bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+                }
+                System.out.printf("%10d  %-8s %10.1f %9d %10d %7d %14d%n",
+                    size, solver.name().toLowerCase(), bestNanos / 1_000_000.0,
+                    scheduler.getAssignmentCount(),
+                    scheduler.getSchedule().getStaffingShortfall(),
+                    scheduler.getPreferenceScore(),
+                    scheduler.getFirstChoiceCount());
+            }
+        }
+        System.out.println("=".repeat(80));
+        
+        runIncremental(rosterSizes, seed);
+    }
+    
+    private static void runIncremental(int[] rosterSizes, long seed) {
+        // Time incremental preference updates against rescheduling the whole roster (greedy)
+        System.out.println("\nIncremental updates (" + UPDATES + " random preference changes per roster)");
+        System.out.println("=".repeat(80));
+        System.out.printf("%10s %16s %16s %16s%n", "Employees", "Full (ms)", "Update (ms)", "Changes/update");
+        System.out.println("-".repeat(80));
+        
+        for (int size : rosterSizes) {
+            EmployeeScheduler scheduler = new EmployeeScheduler();
+            scheduler.setSeed(seed);
+            scheduler.generateEmployees(size, seed);
+            long start = System.nanoTime();
+            scheduler.assignEmployees();
+            long fullNanos = System.nanoTime() - start;
+            
+            Random random = new Random(seed);
+            List<Employee> employees = scheduler.getEmployees();
+            int changes = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < UPDATES; i++) {
+                Employee employee = employees.get(random.nextInt(employees.size()));
+                changes += scheduler.updatePreferences(employee, randomPreferences(random)).getChanges().size();
+            }
+            long updateNanos = System.nanoTime() - start;
+            System.out.printf("%10d %16.2f %16.4f %16.1f%n", size, fullNanos / 1_000_000.0,
+                updateNanos / 1_000_000.0 / UPDATES, (double) changes / UPDATES);
+        }
+        System.out.println("=".repeat(80));
+    }
+    
+    private static Map<Day, List<Shift>> randomPreferences(Random random) {
+        // New preferences drawn like generated ones: about two days in three, one to three shifts
+        Map<Day, List<Shift>> preferences = new EnumMap<>(Day.class);
+        List<Shift> shifts = new ArrayList<>(Arrays.asList(Schedule.SHIFTS));
+        for (Day day : Schedule.DAYS) {
+            if (random.nextInt(3) != 0) {
+                Collections.shuffle(shifts, random);
+                preferences.put(day, new ArrayList<>(shifts.subList(0, 1 + random.nextInt(Shift.COUNT))));
+            }
+        }
+        return preferences;
+    }
+}
@@ -0,0 +1,36 @@
+// ============================================================================
+// SHIFT ENUM
+// ============================================================================
+
+public enum Shift {
+    MORNING("morning"),
+    AFTERNOON("afternoon"),
+    EVENING("evening");
+    
+    public static final int COUNT = values().length;
+    
+    private final String displayName;
+    
+    Shift(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return this.displayName;
+    }
+    
+    public static Shift fromName(String name) {
+        // Case-insensitive lookup by display name, null if there is no such shift
+        for (Shift shift : values()) {
+            if (shift.displayName.equalsIgnoreCase(name.trim())) {
+                return shift;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public String toString() {
+        return this.displayName;
+    }
+}
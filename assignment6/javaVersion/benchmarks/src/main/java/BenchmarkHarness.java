@@ -0,0 +1,115 @@
+import benchmarks.Harness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Harness implementation bound to the program classes in the default package.
+ * Loaded by name from {@link Harness#load()}; per-task logging is turned off so the
+ * benchmarks measure the data structures rather than the log ring buffer.
+ */
+public class BenchmarkHarness implements Harness {
+    // Task payload shared by every benchmark task
+    private static final String TASK_DATA = "benchmark-data";
+
+    /**
+     * Constructor lowers the log level to warnings only.
+     */
+    public BenchmarkHarness() {
+        AsyncLogger.setLevel(AsyncLogger.Level.WARN);
+    }
+
+    @Override
+    public Queue newQueue(String mode, int capacity) {
+        TaskOrdering ordering = "priority".equals(mode)
+                ? new TaskOrdering(TaskOrdering.Direction.HIGHEST_FIRST)
+                : null;
+        SharedTaskQueue queue = new SharedTaskQueue(ordering, capacity,
+                SharedTaskQueue.OverflowPolicy.BLOCK, 0, TimeUnit.MILLISECONDS);
+        return new Queue() {
+            @Override
+            public boolean add(int taskId, int priority) {
+                return queue.addTask(new Task(taskId, TASK_DATA, priority));
+            }
+
+            @Override
+            public int take() throws InterruptedException {
+                Task task;
+                while ((task = queue.getTask(1, TimeUnit.SECONDS)) == null) {
+                    // Keep waiting; benchmark queues are never closed
+                }
+                return task.getTaskId();
+            }
+
+            @Override
+            public int size() {
+                return queue.size();
+            }
+        };
+    }
+
+    @Override
+    public Collector newCollector() {
+        ResultsCollector collector = new ResultsCollector();
+        return new Collector() {
+            @Override
+            public void add(int workerId, int taskId) {
+                collector.addResult(new Result(taskId, TASK_DATA, workerId, System.currentTimeMillis()));
+            }
+
+            @Override
+            public int count() {
+                return collector.getResultCount();
+            }
+
+            @Override
+            public void clear() {
+                collector.clear();
+            }
+        };
+    }
+
+    @Override
+    public Service start(int workers, int batchSize, long taskCost, TimeUnit unit) {
+        ConcurrentHashMap<Integer, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+        SharedTaskQueue queue = new SharedTaskQueue();
+        // Streaming collector: completes the waiting submitter instead of retaining results
+        ResultsCollector collector = new ResultsCollector(result -> {
+            CompletableFuture<Void> done = pending.remove(result.getTaskId());
+            if (done != null) {
+                done.complete(null);
+            }
+        });
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 1; i <= workers; i++) {
+            WorkerThread worker = new WorkerThread(i, queue, collector, batchSize);
+            worker.setProcessingTime(taskCost, taskCost, unit);
+            Thread thread = new Thread(worker, "bench-worker-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        return new Service() {
+            @Override
+            public void process(int taskId) throws Exception {
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                pending.put(taskId, done);
+                if (!queue.addTask(new Task(taskId, TASK_DATA))) {
+                    pending.remove(taskId);
+                    throw new IllegalStateException("Queue rejected task " + taskId);
+                }
+                done.get();
+            }
+
+            @Override
+            public void close() throws InterruptedException {
+                queue.close();
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of ResultsCollector.addResult from one, four and all available threads.
+ * The collector keeps every result, so iterations are short and the collector is
+ * emptied after each one to keep the heap from growing across the run.
+ * Every add uses a new task ID, so the collector stores the result instead of
+ * dropping it as a duplicate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CollectorBenchmark {
+
+    private Harness.Collector collector;
+
+    /**
+     * Per-thread worker ID, so each benchmark thread looks like a separate worker, and
+     * task ID counter. Threads take IDs striped by thread index (index, index + threads,
+     * ...), so the IDs stay unique and dense; the counter restarts with every iteration,
+     * when the collector has been emptied.
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+        private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+        int id;
+        private int stripe;
+        private int stride;
+        private int sequence;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams params) {
+            id = NEXT_ID.incrementAndGet();
+            stripe = params.getThreadIndex();
+            stride = params.getThreadCount();
+        }
+
+        @Setup(Level.Iteration)
+        public void resetTaskIds() {
+            sequence = 0;
+        }
+
+        int nextTaskId() {
+            return sequence++ * stride + stripe;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        collector = Harness.load().newCollector();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() {
+        collector.clear();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void addResult1Thread(Worker worker) {
+        collector.add(worker.id, worker.nextTaskId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addResult4Threads(Worker worker) {
+        collector.add(worker.id, worker.nextTaskId());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void addResultMaxThreads(Worker worker) {
+        collector.add(worker.id, worker.nextTaskId());
+    }
+}
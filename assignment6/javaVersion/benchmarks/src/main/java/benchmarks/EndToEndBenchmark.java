@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end cost of one task: enqueue, pick-up by a worker, simulated processing,
+ * and delivery of the result to the collector.
+ * Each benchmark thread keeps one task in flight, so -t sets the offered load.
+ * Throughput mode gives tasks per second; SampleTime mode gives the latency
+ * distribution with p50/p90/p99/p99.9 percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(4)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param({"4"})
+    public int workers;
+
+    @Param({"1"})
+    public int batchSize;
+
+    // Simulated processing time per task
+    @Param({"0", "100", "1000"})
+    public long taskCostMicros;
+
+    private final AtomicInteger nextTaskId = new AtomicInteger();
+    private Harness.Service service;
+
+    @Setup
+    public void setUp() {
+        service = Harness.load().start(workers, batchSize, taskCostMicros, TimeUnit.MICROSECONDS);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        service.close();
+    }
+
+    @Benchmark
+    public void processTask() throws Exception {
+        service.process(nextTaskId.incrementAndGet());
+    }
+}
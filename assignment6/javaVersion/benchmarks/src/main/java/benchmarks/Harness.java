@@ -0,0 +1,119 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bridge between the benchmarks and the program classes in ../src.
+ * JMH only accepts benchmarks in a named package, while the program lives in the
+ * default package, which cannot be imported; the implementation (BenchmarkHarness,
+ * compiled into the same jar) is therefore looked up by name once per trial.
+ */
+public interface Harness {
+
+    /**
+     * Task queue under test.
+     */
+    interface Queue {
+        /**
+         * Enqueue a task.
+         * @param taskId Task ID
+         * @param priority Task priority
+         * @return true if the task was accepted
+         */
+        boolean add(int taskId, int priority);
+
+        /**
+         * Dequeue a task, blocking until one is available.
+         * @return ID of the task taken
+         * @throws InterruptedException if interrupted while waiting
+         */
+        int take() throws InterruptedException;
+
+        /**
+         * Get the number of tasks waiting.
+         * @return Queue size
+         */
+        int size();
+    }
+
+    /**
+     * Results collector under test.
+     */
+    interface Collector {
+        /**
+         * Store one result produced by the given worker.
+         * Task IDs must be unique until {@link #clear()}, or the collector drops the
+         * result as a duplicate instead of storing it.
+         * @param workerId Worker ID
+         * @param taskId Task ID
+         */
+        void add(int workerId, int taskId);
+
+        /**
+         * Get the number of results stored.
+         * @return Result count
+         */
+        int count();
+
+        /**
+         * Discard all stored results.
+         */
+        void clear();
+    }
+
+    /**
+     * Running set of workers fed through the shared queue.
+     */
+    interface Service extends AutoCloseable {
+        /**
+         * Submit a task and wait until its result reaches the collector.
+         * @param taskId Task ID, unique among tasks in flight
+         * @throws Exception if the task fails or the wait is interrupted
+         */
+        void process(int taskId) throws Exception;
+
+        /**
+         * Stop the workers and wait for them to exit.
+         * @throws InterruptedException if interrupted while waiting
+         */
+        @Override
+        void close() throws InterruptedException;
+    }
+
+    /**
+     * Create a task queue.
+     * @param mode "fifo" or "priority"
+     * @param capacity Maximum number of queued tasks, 0 for unbounded
+     * @return Queue adapter
+     */
+    Queue newQueue(String mode, int capacity);
+
+    /**
+     * Create an empty results collector.
+     * @return Collector adapter
+     */
+    Collector newCollector();
+
+    /**
+     * Start worker threads that pull from a shared queue.
+     * @param workers Number of worker threads
+     * @param batchSize Tasks taken per queue access
+     * @param taskCost Simulated processing time per task
+     * @param unit Unit of the task cost
+     * @return Running service
+     */
+    Service start(int workers, int batchSize, long taskCost, TimeUnit unit);
+
+    /**
+     * Load the implementation compiled from the default package.
+     * @return Harness bound to the program classes
+     * @throws IllegalStateException if the implementation is not on the class path
+     */
+    static Harness load() {
+        try {
+            return (Harness) Class.forName("BenchmarkHarness").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkHarness is not on the class path", e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of SharedTaskQueue.addTask followed by getTask.
+ * Every benchmark thread acts as both producer and consumer, so the queue stays
+ * short and the score reflects contention on the queue rather than its length.
+ * Run with -t to vary the number of threads sharing the queue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+
+    @Param({"fifo", "priority"})
+    public String mode;
+
+    @Param({"0", "1024"})
+    public int capacity;
+
+    private Harness.Queue queue;
+
+    @Setup
+    public void setUp() {
+        queue = Harness.load().newQueue(mode, capacity);
+    }
+
+    @Benchmark
+    public int addThenTake() throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        queue.add(random.nextInt(), random.nextInt(1, 11));
+        return queue.take();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int addThenTake4Threads() throws InterruptedException {
+        return addThenTake();
+    }
+}
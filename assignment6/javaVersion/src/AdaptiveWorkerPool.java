@@ -0,0 +1,241 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Elastic pool of worker threads sized from the queue's backlog and task wait time.
+ * A controller thread samples the queue depth and the recent queue wait time every
+ * CONTROL_INTERVAL_MS; when tasks are piling up (more queued tasks than workers, or
+ * tasks waiting longer than the target) it adds workers, at most doubling the pool per
+ * step and never exceeding the ceiling. Workers that stay idle past the keep-alive
+ * retire themselves, down to the minimum pool size.
+ */
+public class AdaptiveWorkerPool {
+    // How often the controller re-evaluates the pool size
+    private static final long CONTROL_INTERVAL_MS = 100;
+
+    private final SharedTaskQueue taskQueue;
+    private final ResultsCollector resultsCollector;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final long keepAliveNanos;
+    private final long targetWaitNanos;
+    private final AtomicInteger liveWorkers;
+    private final AtomicInteger startedWorkers;
+    private final AtomicInteger retiredWorkers;
+    private final AtomicInteger peakWorkers;
+    private final Queue<Thread> threads;
+    private volatile Consumer<? super WorkerThread> workerSetup = worker -> { };
+    private Thread controller;
+
+    /**
+     * Constructor for the pool.
+     * @param taskQueue Queue the workers drain
+     * @param resultsCollector Shared collector to store results in
+     * @param minWorkers Workers kept alive even when idle
+     * @param maxWorkers Ceiling on the number of workers
+     * @param keepAlive Idle time after which a worker above the minimum retires
+     * @param targetWait Queue wait time above which the pool grows even with a short backlog
+     * @param unit Unit of keepAlive and targetWait
+     * @throws IllegalArgumentException if minWorkers is not positive, maxWorkers is less than
+     *         minWorkers, or keepAlive or targetWait is not positive
+     */
+    public AdaptiveWorkerPool(SharedTaskQueue taskQueue, ResultsCollector resultsCollector,
+                              int minWorkers, int maxWorkers, long keepAlive, long targetWait, TimeUnit unit) {
+        if (minWorkers <= 0 || maxWorkers < minWorkers) {
+            throw new IllegalArgumentException("Invalid pool size range: " + minWorkers + ".." + maxWorkers);
+        }
+        if (keepAlive <= 0) {
+            throw new IllegalArgumentException("Keep-alive must be positive: " + keepAlive);
+        }
+        if (targetWait <= 0) {
+            throw new IllegalArgumentException("Target wait must be positive: " + targetWait);
+        }
+        this.taskQueue = taskQueue;
+        this.resultsCollector = resultsCollector;
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.keepAliveNanos = unit.toNanos(keepAlive);
+        this.targetWaitNanos = unit.toNanos(targetWait);
+        this.liveWorkers = new AtomicInteger();
+        this.startedWorkers = new AtomicInteger();
+        this.retiredWorkers = new AtomicInteger();
+        this.peakWorkers = new AtomicInteger();
+        this.threads = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Start the minimum number of workers and the controller thread.
+     * @throws IllegalStateException if the pool was already started
+     */
+    public synchronized void start() {
+        if (controller != null) {
+            throw new IllegalStateException("Pool has already been started.");
+        }
+        addWorkers(minWorkers);
+        controller = new Thread(this::control, "pool-controller");
+        controller.setDaemon(true);
+        controller.start();
+        AsyncLogger.info("[Pool] Started with {} workers (max {}).", minWorkers, maxWorkers);
+    }
+
+    /**
+     * Apply the same settings, e.g. a shared result cache or retry scheduler, to every
+     * worker, including ones added later. Should be called before start().
+     * @param setup Action run once per worker before it starts
+     */
+    public void configureWorkers(Consumer<? super WorkerThread> setup) {
+        this.workerSetup = setup;
+    }
+
+    /**
+     * Wait until the queue is closed and drained and every worker has exited.
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the pool was not started
+     */
+    public void awaitTermination() throws InterruptedException {
+        Thread control;
+        synchronized (this) {
+            control = controller;
+        }
+        if (control == null) {
+            throw new IllegalStateException("Pool has not been started.");
+        }
+        control.join();
+        // The controller stops adding workers before it exits, so this list is final
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Get the number of workers currently running.
+     * @return Live worker count
+     */
+    public int getWorkerCount() {
+        return liveWorkers.get();
+    }
+
+    /**
+     * Get the number of workers started over the pool's lifetime.
+     * Worker IDs run from 1 to this number.
+     * @return Started worker count
+     */
+    public int getStartedWorkers() {
+        return startedWorkers.get();
+    }
+
+    /**
+     * Get the number of workers that retired after the keep-alive.
+     * @return Retired worker count
+     */
+    public int getRetiredWorkers() {
+        return retiredWorkers.get();
+    }
+
+    /**
+     * Get the largest number of workers running at once.
+     * @return Peak worker count
+     */
+    public int getPeakWorkers() {
+        return peakWorkers.get();
+    }
+
+    /**
+     * Controller loop: resize the pool until the queue is closed and all workers are gone.
+     */
+    private void control() {
+        LatencyHistogram.Summary previousWait = ProcessingMetrics.global().snapshot().getWaitTime();
+        try {
+            while (!(taskQueue.isClosed() && liveWorkers.get() == 0)) {
+                TimeUnit.MILLISECONDS.sleep(CONTROL_INTERVAL_MS);
+                LatencyHistogram.Summary wait = ProcessingMetrics.global().snapshot().getWaitTime();
+                long recentWait = recentMean(previousWait, wait);
+                previousWait = wait;
+
+                int depth = taskQueue.size();
+                int live = liveWorkers.get();
+                if (depth == 0 || live >= maxWorkers) {
+                    continue;
+                }
+                if (depth > live || recentWait > targetWaitNanos) {
+                    // Grow geometrically so a burst is absorbed within a few intervals
+                    int add = Math.min(maxWorkers - live, Math.max(1, Math.min(live, depth - live)));
+                    addWorkers(add);
+                    AsyncLogger.info("[Pool] Queue depth {}, added workers: now {}.", depth, liveWorkers.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            AsyncLogger.warn("[Pool] Controller interrupted: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start new workers.
+     * @param count Number of workers to add
+     */
+    private void addWorkers(int count) {
+        for (int i = 0; i < count; i++) {
+            int workerId = startedWorkers.incrementAndGet();
+            AtomicBoolean retired = new AtomicBoolean();
+            WorkerThread worker = new WorkerThread(workerId, taskQueue, resultsCollector);
+            workerSetup.accept(worker);
+            worker.setIdleTimeout(keepAliveNanos, TimeUnit.NANOSECONDS, () -> {
+                if (tryRetire()) {
+                    retired.set(true);
+                    return true;
+                }
+                return false;
+            });
+            peakWorkers.accumulateAndGet(liveWorkers.incrementAndGet(), Math::max);
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.run();
+                } finally {
+                    // Retired workers were already taken off the live count
+                    if (!retired.get()) {
+                        liveWorkers.decrementAndGet();
+                    }
+                }
+            }, "pool-worker-" + workerId);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Claim a retirement slot if the pool is above its minimum size.
+     * @return true if the caller may exit
+     */
+    private boolean tryRetire() {
+        while (true) {
+            int live = liveWorkers.get();
+            if (live <= minWorkers) {
+                return false;
+            }
+            if (liveWorkers.compareAndSet(live, live - 1)) {
+                retiredWorkers.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Mean wait time of the samples recorded between two histogram summaries.
+     * @param before Earlier summary
+     * @param after Later summary
+     * @return Mean wait of the new samples in nanoseconds, 0 if there were none
+     */
+    private static long recentMean(LatencyHistogram.Summary before, LatencyHistogram.Summary after) {
+        long samples = after.getCount() - before.getCount();
+        if (samples <= 0) {
+            return 0;
+        }
+        long total = after.getMeanNanos() * after.getCount() - before.getMeanNanos() * before.getCount();
+        return Math.max(0, total / samples);
+    }
+}
@@ -0,0 +1,287 @@
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Levelled, asynchronous logger for the task queue, workers and results collector.
+ * Callers write a message template and up to three long arguments into a preallocated
+ * ring buffer slot; a background thread formats the events and prints them in batches.
+ * A disabled level costs one comparison, and an enabled hot-path call allocates nothing:
+ * templates are string literals and "{}" placeholders are filled with primitive arguments
+ * on the logging thread.
+ * The level defaults to INFO and can be set with -Dlog.level=DEBUG|INFO|WARN|ERROR|OFF.
+ */
+public final class AsyncLogger {
+
+    /**
+     * Log levels in increasing order of severity.
+     */
+    public enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR,
+        OFF
+    }
+
+    // Must be a power of two
+    private static final int CAPACITY = 8192;
+    private static final int MASK = CAPACITY - 1;
+    // Upper bound on events formatted into a single write
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private static final Event[] RING = new Event[CAPACITY];
+    // Next sequence number to hand to a producer
+    private static final AtomicLong CLAIMED = new AtomicLong();
+    // Every sequence below this has been printed
+    private static volatile long consumed;
+    private static volatile Level level = Level.valueOf(System.getProperty("log.level", "INFO").toUpperCase());
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            RING[i] = new Event();
+        }
+        Thread writer = new Thread(AsyncLogger::drainLoop, "async-logger");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncLogger::flush, "async-logger-flush"));
+    }
+
+    private AsyncLogger() {
+    }
+
+    /**
+     * Set the minimum level that is logged.
+     * @param newLevel New minimum level
+     */
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    /**
+     * Get the minimum level that is logged.
+     * @return Current level
+     */
+    public static Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Check whether a level is logged, to guard arguments that are costly to compute.
+     * @param candidate Level to check
+     * @return true if events at this level are logged
+     */
+    public static boolean isEnabled(Level candidate) {
+        return candidate.ordinal() >= level.ordinal();
+    }
+
+    /**
+     * Log a debug event with 1 placeholder argument.
+     * @param template Message template with "{}" placeholders
+     * @param a First argument
+     */
+    public static void debug(String template, long a) {
+        if (isEnabled(Level.DEBUG)) {
+            publish(Level.DEBUG, template, 1, a, 0, 0, null);
+        }
+    }
+
+    /**
+     * Log a debug event with 2 placeholder arguments.
+     * @param template Message template with "{}" placeholders
+     * @param a First argument
+     * @param b Second argument
+     */
+    public static void debug(String template, long a, long b) {
+        if (isEnabled(Level.DEBUG)) {
+            publish(Level.DEBUG, template, 2, a, b, 0, null);
+        }
+    }
+
+    /**
+     * Log a debug event with 3 placeholder arguments.
+     * @param template Message template with "{}" placeholders
+     * @param a First argument
+     * @param b Second argument
+     * @param c Third argument
+     */
+    public static void debug(String template, long a, long b, long c) {
+        if (isEnabled(Level.DEBUG)) {
+            publish(Level.DEBUG, template, 3, a, b, c, null);
+        }
+    }
+
+    /**
+     * Log an info event whose template has no placeholders.
+     * @param template Message to log
+     */
+    public static void info(String template) {
+        if (isEnabled(Level.INFO)) {
+            publish(Level.INFO, template, 0, 0, 0, 0, null);
+        }
+    }
+
+    /**
+     * Log an info event with 1 placeholder argument.
+     * @param template Message template with "{}" placeholders
+     * @param a First argument
+     */
+    public static void info(String template, long a) {
+        if (isEnabled(Level.INFO)) {
+            publish(Level.INFO, template, 1, a, 0, 0, null);
+        }
+    }
+
+    /**
+     * Log an info event with 2 placeholder arguments.
+     * @param template Message template with "{}" placeholders
+     * @param a First argument
+     * @param b Second argument
+     */
+    public static void info(String template, long a, long b) {
+        if (isEnabled(Level.INFO)) {
+            publish(Level.INFO, template, 2, a, b, 0, null);
+        }
+    }
+
+    /**
+     * Log a warning. Off the hot path, so the message may be built by the caller.
+     * @param message Message to log
+     */
+    public static void warn(String message) {
+        if (isEnabled(Level.WARN)) {
+            publish(Level.WARN, message, 0, 0, 0, 0, null);
+        }
+    }
+
+    /**
+     * Log an error. Off the hot path, so the message may be built by the caller.
+     * @param message Message to log
+     */
+    public static void error(String message) {
+        error(message, null);
+    }
+
+    /**
+     * Log an error followed by the stack trace of its cause.
+     * @param message Message to log
+     * @param cause Exception whose stack trace is printed, may be null
+     */
+    public static void error(String message, Throwable cause) {
+        if (isEnabled(Level.ERROR)) {
+            publish(Level.ERROR, message, 0, 0, 0, 0, cause);
+        }
+    }
+
+    /**
+     * Block until every event logged before this call has been printed.
+     * Used before writing directly to the console so the output stays in order.
+     */
+    public static void flush() {
+        long target = CLAIMED.get();
+        while (consumed < target) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        System.out.flush();
+        System.err.flush();
+    }
+
+    /**
+     * Claim a ring slot, fill it in and publish it to the writer thread.
+     * Producers only wait when the writer has fallen a full ring behind.
+     */
+    private static void publish(Level eventLevel, String template, int argCount,
+                                long a, long b, long c, Throwable cause) {
+        long sequence = CLAIMED.getAndIncrement();
+        while (sequence - consumed >= CAPACITY) {
+            Thread.yield();
+        }
+        Event event = RING[(int) sequence & MASK];
+        event.level = eventLevel;
+        event.template = template;
+        event.argCount = argCount;
+        event.a = a;
+        event.b = b;
+        event.c = c;
+        event.cause = cause;
+        // Volatile write publishes the fields above
+        event.published = sequence;
+    }
+
+    /**
+     * Writer thread: format published events in order and print them one batch at a time.
+     */
+    private static void drainLoop() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        StringBuilder err = new StringBuilder(1024);
+        long next = 0;
+        while (true) {
+            int batch = 0;
+            while (batch < MAX_BATCH) {
+                Event event = RING[(int) next & MASK];
+                if (event.published != next) {
+                    break;
+                }
+                StringBuilder target = event.level.ordinal() >= Level.WARN.ordinal() ? err : out;
+                format(event, target);
+                event.template = null;
+                event.cause = null;
+                next++;
+                batch++;
+            }
+            if (batch == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            if (out.length() > 0) {
+                System.out.print(out);
+                out.setLength(0);
+            }
+            if (err.length() > 0) {
+                System.err.print(err);
+                err.setLength(0);
+            }
+            consumed = next;
+        }
+    }
+
+    /**
+     * Append one event as a line, substituting "{}" placeholders with its arguments.
+     */
+    private static void format(Event event, StringBuilder target) {
+        String template = event.template;
+        int arg = 0;
+        int start = 0;
+        int placeholder;
+        while (arg < event.argCount && (placeholder = template.indexOf("{}", start)) >= 0) {
+            target.append(template, start, placeholder);
+            target.append(arg == 0 ? event.a : (arg == 1 ? event.b : event.c));
+            start = placeholder + 2;
+            arg++;
+        }
+        target.append(template, start, template.length()).append(System.lineSeparator());
+        if (event.cause != null) {
+            StringWriter trace = new StringWriter();
+            event.cause.printStackTrace(new PrintWriter(trace));
+            target.append(trace);
+        }
+    }
+
+    /**
+     * Reusable ring buffer slot.
+     */
+    private static final class Event {
+        // Sequence number of the event currently stored in this slot
+        volatile long published = -1;
+        Level level;
+        String template;
+        int argCount;
+        long a;
+        long b;
+        long c;
+        Throwable cause;
+    }
+}
@@ -0,0 +1,37 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary encoding of one record type.
+ * Codecs write only the record body; framing (length prefixes, checksums, file headers)
+ * is left to the reader, writer or journal that embeds them.
+ * @param <T> Type of record encoded
+ */
+public interface BinaryCodec<T> {
+
+    /**
+     * Get the tag written in file headers so a file cannot be read with the wrong codec.
+     * @return Format identifier
+     */
+    int formatId();
+
+    /**
+     * Get the number of bytes encode() will write for a record.
+     * @param value Record to measure
+     * @return Encoded size in bytes
+     */
+    int encodedSize(T value);
+
+    /**
+     * Write a record at the buffer's position.
+     * @param value Record to encode
+     * @param buffer Buffer with at least encodedSize(value) bytes remaining
+     */
+    void encode(T value, ByteBuffer buffer);
+
+    /**
+     * Read a record from the buffer's position.
+     * @param buffer Buffer positioned at an encoded record
+     * @return Decoded record
+     */
+    T decode(ByteBuffer buffer);
+}
@@ -0,0 +1,128 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length-prefixed UTF-8 strings for the binary codecs.
+ * A string is written as its byte length (int, -1 for null) followed by the bytes.
+ * ASCII strings, the common case for task data, are encoded and decoded straight
+ * between the String and the buffer without an intermediate byte array.
+ */
+final class BinaryStrings {
+
+    /**
+     * No instances; static helpers only.
+     */
+    private BinaryStrings() {
+    }
+
+    /**
+     * Get the encoded size of a string, including its length prefix.
+     * @param value String to measure, may be null
+     * @return Size in bytes
+     */
+    static int encodedSize(String value) {
+        return 4 + (value == null ? 0 : utf8Length(value));
+    }
+
+    /**
+     * Write a length-prefixed string.
+     * @param buffer Buffer to write to
+     * @param value String to write, may be null
+     */
+    static void put(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        int length = utf8Length(value);
+        buffer.putInt(length);
+        if (length == value.length()) {
+            // Pure ASCII: one byte per char
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        } else {
+            buffer.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Read a length-prefixed string.
+     * @param buffer Buffer positioned at the length prefix
+     * @param scratch Reusable array for buffers without an accessible backing array
+     * @return Decoded string, or null
+     * @throws IllegalArgumentException if the length prefix runs past the buffer's limit
+     */
+    static String get(ByteBuffer buffer, Scratch scratch) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            // A corrupt prefix must not make the scratch array grow to its size
+            throw new IllegalArgumentException("String length " + length + " exceeds the " + buffer.remaining() + " bytes left");
+        }
+        byte[] bytes;
+        int offset;
+        if (buffer.hasArray()) {
+            bytes = buffer.array();
+            offset = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.position() + length);
+        } else {
+            bytes = scratch.ensure(length);
+            offset = 0;
+            buffer.get(bytes, 0, length);
+        }
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < 0) {
+                return new String(bytes, offset, length, StandardCharsets.UTF_8);
+            }
+        }
+        // ASCII is also valid Latin-1, which the JDK copies straight into a compact string
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Count the UTF-8 bytes of a string without encoding it.
+     * @param value String to measure
+     * @return Encoded length in bytes
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                // Includes unpaired surrogates, which UTF-8 encodes as '?'
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Reusable decode array, grown on demand. Not thread-safe.
+     */
+    static final class Scratch {
+        private byte[] bytes = new byte[256];
+
+        /**
+         * Get an array of at least the given size.
+         * @param size Required size
+         * @return Scratch array
+         */
+        byte[] ensure(int size) {
+            if (bytes.length < size) {
+                bytes = new byte[Math.max(size, bytes.length * 2)];
+            }
+            return bytes;
+        }
+    }
+}
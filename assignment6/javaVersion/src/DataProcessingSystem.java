@@ -1,4 +1,17 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
 
 /**
  * Main Data Processing System that orchestrates worker threads processing tasks.
@@ -7,88 +20,832 @@ import java.util.List;
 public class DataProcessingSystem {
     private static final int NUM_WORKER_THREADS = 4;
     private static final int NUM_TASKS = 15;
+    private static final int DEFAULT_MAX_CONCURRENCY = 10000;
+    private static final int DEFAULT_MAX_WORKERS = 16;
+    // Tasks read from a task file per queue insertion
+    private static final int TASK_FILE_BATCH = 1024;
+    // Missing task IDs printed at the end of a run before the list is cut short
+    private static final int MAX_MISSING_LISTED = 20;
+    // Growth of the retry backoff bound per failed attempt
+    private static final double RETRY_BACKOFF_MULTIPLIER = 2.0;
 
     /**
      * Main method to run the data processing system.
-     * @param args Command line arguments (not used)
+     * Supported options:
+     *   --engine=threads|adaptive|forkjoin|virtual|pipeline|compare
+     *                              Worker engine: fixed threads, a pool that resizes with the backlog,
+     *                              work stealing, one virtual thread per task, a parse/process/enrich
+     *                              pipeline, or a timed comparison of threads and virtual (default threads)
+     *   --max-concurrency=N        Tasks in flight for the virtual engine (default 10000)
+     *   --min-workers=N            Smallest size of the adaptive pool (default 1)
+     *   --max-workers=N            Largest size of the adaptive pool (default 16)
+     *   --keep-alive-ms=N          Idle time before an adaptive worker retires (default 2000)
+     *   --target-wait-ms=N         Queue wait above which the adaptive pool grows (default 500)
+     *   --batch-size=N             Tasks each worker thread takes per queue access (default 1)
+     *   --queue=fifo|priority      Queue scheduling mode (default fifo)
+     *   --priority-order=high|low  Which priority values run first (default high)
+     *   --aging-ms=N               Aging interval for priority mode, 0 disables (default 0)
+     *   --capacity=N               Maximum queued tasks, 0 for unbounded (default 0)
+     *   --overflow=block|timeout|reject|drop-lowest
+     *                              What the producer does when the queue is full (default block)
+     *   --offer-timeout-ms=N       How long the timeout policy waits for a free slot (default 100)
+     *   --task-timeout-ms=N        Deadline of each task, measured from when it is queued: tasks
+     *                              still queued then are dropped and running ones are cancelled,
+     *                              0 disables (default 0)
+     *   --streaming                Run the producer alongside the workers and stream results
+     *                              to a downstream consumer instead of collecting them
+     *   --journal=DIR              Journal queued tasks to DIR and replay unacknowledged ones on restart
+     *   --journal-sync-ms=N        Group-commit interval of the journal, 0 syncs every record (default 10)
+     *   --input=FILE               Read the tasks from a binary task file instead of generating them
+     *   --output=FILE              Write the results to a binary result file
+     *   --create-input=FILE        Write --count generated tasks to a binary task file and exit
+     *   --count=N                  Number of tasks written by --create-input (default 1000000)
+     *   --result-store=heap|offheap
+     *                              Keep results as objects in the collector, or packed into
+     *                              primitive columns and off-heap buffers (default heap)
+     *   --cache-size=N             Reuse outputs of up to N distinct task data values, 0 disables (default 0)
+     *   --cache-policy=lru|tinylfu Eviction policy of the result cache (default tinylfu)
+     *   --max-attempts=N           Attempts per task before it is dead-lettered; failed tasks are
+     *                              retried after a jittered exponential backoff, 0 disables
+     *                              retries and failed tasks are dropped (default 0)
+     *   --retry-backoff-ms=N       Upper bound of the delay before the first retry (default 100)
+     *   --retry-max-backoff-ms=N   Cap on the retry delay bound (default 10000)
+     *   --dead-letters=FILE        Write dead-lettered tasks to a binary task file for --input
+     *   --failure-rate=P           Share of tasks that fail after processing, to exercise
+     *                              retries (default 0)
+     *   --metrics-interval-ms=N    Log a metrics snapshot every N ms while running, 0 disables
+     *                              (default 0); metrics are also readable over JMX
+     * @param args Command line arguments
      */
     public static void main(String[] args) {
+        String createInput = getOption(args, "create-input", null);
+        if (createInput != null) {
+            createTaskFile(Paths.get(createInput), Integer.parseInt(getOption(args, "count", "1000000")));
+            return;
+        }
+        String engine = getOption(args, "engine", "threads");
+        String queueMode = getOption(args, "queue", "fifo");
+        boolean streaming = hasFlag(args, "streaming");
+
         System.out.println("========================================");
         System.out.println("Data Processing System Starting");
         System.out.println("========================================");
         System.out.println("Configuration:");
-        System.out.println("  Worker Threads: " + NUM_WORKER_THREADS);
-        System.out.println("  Tasks to Process: " + NUM_TASKS);
+        System.out.println("  Engine: " + engine);
+        if (engine.equals("forkjoin")) {
+            System.out.println("  Worker Threads: " + Runtime.getRuntime().availableProcessors());
+        } else if (engine.equals("virtual")) {
+            System.out.println("  Max Concurrency: " + getOption(args, "max-concurrency", String.valueOf(DEFAULT_MAX_CONCURRENCY)));
+        } else if (engine.equals("adaptive")) {
+            System.out.println("  Worker Threads: " + getOption(args, "min-workers", "1") + ".."
+                    + getOption(args, "max-workers", String.valueOf(DEFAULT_MAX_WORKERS)));
+        } else {
+            System.out.println("  Worker Threads: " + NUM_WORKER_THREADS);
+        }
+        String inputOption = getOption(args, "input", null);
+        if (inputOption != null) {
+            System.out.println("  Input File: " + inputOption);
+        } else {
+            System.out.println("  Tasks to Process: " + NUM_TASKS);
+        }
+        System.out.println("  Queue Mode: " + queueMode);
+        System.out.println("  Streaming: " + streaming);
         System.out.println("========================================\n");
 
         SharedTaskQueue taskQueue = null;
         ResultsCollector resultsCollector = null;
-        Thread[] workerThreads = null;
+        TaskJournal journal = null;
+        RecordFileReader<Task> input = null;
+        RecordFileWriter<Result> output = null;
+        RetryScheduler retries = null;
+        ProcessingMetrics metrics = ProcessingMetrics.global();
 
         try {
-            // Initialize shared resources
-            taskQueue = new SharedTaskQueue();
-            resultsCollector = new ResultsCollector();
-
-            // Generate and add tasks to the queue
-            System.out.println("[Main] Generating " + NUM_TASKS + " tasks...");
-            generateTasks(taskQueue, NUM_TASKS);
-            System.out.println("[Main] All tasks added to queue.\n");
-
-            // Close the queue to signal no more tasks will be added
-            taskQueue.close();
-
-            // Create and start worker threads
-            System.out.println("[Main] Creating " + NUM_WORKER_THREADS + " worker threads...");
-            workerThreads = new Thread[NUM_WORKER_THREADS];
-            
-            for (int i = 0; i < NUM_WORKER_THREADS; i++) {
-                WorkerThread worker = new WorkerThread(i + 1, taskQueue, resultsCollector);
-                workerThreads[i] = new Thread(worker);
-                workerThreads[i].start();
-                System.out.println("[Main] Started worker thread " + (i + 1));
+            long metricsIntervalMillis = Long.parseLong(getOption(args, "metrics-interval-ms", "0"));
+            if (metricsIntervalMillis > 0) {
+                startMetricsReporting(metrics, metricsIntervalMillis);
+            }
+            if (engine.equals("compare")) {
+                compareEngines(args, queueMode);
+                return;
+            }
+            if (engine.equals("pipeline")) {
+                resultsCollector = new ResultsCollector();
+                runPipeline(resultsCollector);
+                displayResults(resultsCollector, NUM_TASKS, NUM_WORKER_THREADS);
+                return;
             }
-            System.out.println();
 
-            // Wait for all worker threads to complete
-            System.out.println("[Main] Waiting for all worker threads to complete...");
-            for (int i = 0; i < workerThreads.length; i++) {
-                try {
-                    workerThreads[i].join();
-                    System.out.println("[Main] Worker thread " + (i + 1) + " has completed.");
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    System.err.println("[Main] Interrupted while waiting for worker thread " + (i + 1) + ": " + e.getMessage());
+            // Initialize shared resources
+            taskQueue = createTaskQueue(args, queueMode);
+            metrics.watchQueue(taskQueue);
+            List<Task> recoveredTasks = Collections.emptyList();
+            int firstTaskId = 1;
+            String journalDir = getOption(args, "journal", null);
+            if (journalDir != null) {
+                journal = openJournal(args, journalDir);
+                taskQueue.attachJournal(journal);
+                recoveredTasks = journal.getRecoveredTasks();
+                // Number new tasks after everything the journal has seen
+                firstTaskId = journal.getHighestTaskId() + 1;
+            }
+            int newTasks = NUM_TASKS;
+            String inputFile = getOption(args, "input", null);
+            if (inputFile != null) {
+                input = new RecordFileReader<>(Paths.get(inputFile), new TaskCodec());
+                if (input.getRecordCount() < 0) {
+                    throw new IllegalArgumentException("Task file " + inputFile + " was not closed properly.");
                 }
+                newTasks = (int) input.getRecordCount();
+            }
+            String outputFile = getOption(args, "output", null);
+            if (outputFile != null) {
+                output = new RecordFileWriter<>(Paths.get(outputFile), new ResultCodec());
+            }
+            int expectedTasks = recoveredTasks.size() + newTasks;
+            if (!streaming && taskQueue.getCapacity() > 0 && taskQueue.getCapacity() < expectedTasks
+                    && taskQueue.getOverflowPolicy() == SharedTaskQueue.OverflowPolicy.BLOCK) {
+                // Workers only start after generation, so a blocked producer would never wake up
+                throw new IllegalArgumentException("The block policy needs a capacity of at least " + expectedTasks + " tasks, or --streaming.");
+            }
+            StreamingResultConsumer consumer = null;
+            OffHeapResultStore store = createResultStore(args);
+            Thread producer = null;
+            // Failure of the streaming producer, reported once the workers have finished
+            AtomicReference<RuntimeException> producerFailure = new AtomicReference<>();
+            if (streaming) {
+                // Workers start right away and results flow downstream as they are produced
+                consumer = new StreamingResultConsumer();
+                Consumer<Result> downstream = consumer;
+                if (store != null) {
+                    downstream = downstream.andThen(store);
+                }
+                if (output != null) {
+                    downstream = downstream.andThen(output);
+                }
+                resultsCollector = new ResultsCollector(downstream);
+                resultsCollector.attachJournal(journal);
+                taskQueue.onExpired(resultsCollector::recordExpired);
+                taskQueue.onRejected(resultsCollector::recordRejected);
+                taskQueue.onDropped(resultsCollector::recordDropped);
+                SharedTaskQueue queue = taskQueue;
+                List<Task> replay = recoveredTasks;
+                int firstId = firstTaskId;
+                RecordFileReader<Task> source = input;
+                ResultsCollector collector = resultsCollector;
+                producer = new Thread(() -> {
+                    try {
+                        produceTasks(queue, collector, replay, firstId, source);
+                    } catch (RuntimeException e) {
+                        producerFailure.set(e);
+                    }
+                }, "producer");
+                producer.start();
+            } else {
+                // The off-heap store keeps the results in place of the collector's own stripes
+                resultsCollector = store != null ? new ResultsCollector(store) : new ResultsCollector();
+                resultsCollector.attachJournal(journal);
+                taskQueue.onExpired(resultsCollector::recordExpired);
+                taskQueue.onRejected(resultsCollector::recordRejected);
+                taskQueue.onDropped(resultsCollector::recordDropped);
+                produceTasks(taskQueue, resultsCollector, recoveredTasks, firstTaskId, input);
+            }
+
+            // Process the queued tasks with the selected engine
+            MemoizingCache<String, String> resultCache = createResultCache(args);
+            retries = createRetryScheduler(args, taskQueue, resultsCollector);
+            RetryScheduler retryScheduler = retries;
+            double failureRate = Double.parseDouble(getOption(args, "failure-rate", "0"));
+            Consumer<WorkerThread> workerSetup = worker -> {
+                worker.setResultCache(resultCache);
+                worker.setRetryScheduler(retryScheduler);
+                worker.setFailureRate(failureRate);
+            };
+            int numWorkers;
+            if (engine.equals("forkjoin")) {
+                numWorkers = runWorkStealingEngine(taskQueue, resultsCollector, workerSetup);
+            } else if (engine.equals("virtual")) {
+                int maxConcurrency = Integer.parseInt(getOption(args, "max-concurrency", String.valueOf(DEFAULT_MAX_CONCURRENCY)));
+                numWorkers = runVirtualThreadEngine(taskQueue, resultsCollector, maxConcurrency, workerSetup);
+            } else if (engine.equals("adaptive")) {
+                numWorkers = runAdaptivePool(taskQueue, resultsCollector, args, workerSetup);
+            } else if (engine.equals("threads")) {
+                int batchSize = Integer.parseInt(getOption(args, "batch-size", "1"));
+                runWorkerThreads(taskQueue, resultsCollector, NUM_WORKER_THREADS, batchSize, workerSetup);
+                numWorkers = NUM_WORKER_THREADS;
+            } else {
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+            }
+            if (retries != null) {
+                // Nothing can take a task off the queue any more, so a retry still waiting is dead-lettered
+                retries.close();
             }
-            System.out.println();
 
             // Display results and statistics
-            displayResults(resultsCollector, NUM_TASKS);
+            if (producer != null) {
+                producer.join();
+                RuntimeException failure = producerFailure.get();
+                if (failure != null) {
+                    System.err.println("[Main] Producer failed, not every task was queued: " + failure);
+                }
+                displayStreamingResults(consumer, resultsCollector, expectedTasks, numWorkers);
+            } else if (store != null) {
+                if (output != null) {
+                    OffHeapResultStore.Cursor cursor = store.cursor();
+                    while (cursor.next()) {
+                        output.write(cursor.toResult());
+                    }
+                }
+                displayStoredResults(store, resultsCollector, expectedTasks, numWorkers);
+            } else {
+                if (output != null) {
+                    resultsCollector.forEachResult(output);
+                }
+                displayResults(resultsCollector, expectedTasks, numWorkers);
+            }
+            if (resultCache != null) {
+                System.out.println("[Main] Result cache: " + resultCache);
+            }
+            if (retries != null) {
+                displayDeadLetters(retries, getOption(args, "dead-letters", null));
+            }
+            if (output != null) {
+                output.close();
+                System.out.println("[Main] Wrote " + output.getRecordCount() + " results to " + outputFile);
+            }
 
         } catch (Exception e) {
             System.err.println("[Main] Fatal error in data processing system: " + e.getMessage());
             e.printStackTrace();
         } finally {
+            metrics.stopReporting();
+            metrics.watchQueue(null);
+            if (retries != null) {
+                retries.close();
+            }
+            if (journal != null) {
+                closeJournal(journal);
+            }
+            closeQuietly(input);
+            closeQuietly(output);
+            AsyncLogger.flush();
             System.out.println("\n========================================");
             System.out.println("Data Processing System Completed");
             System.out.println("========================================");
         }
     }
 
+    /**
+     * Process the queue with a fixed pool of worker threads and wait for them to finish.
+     * @param taskQueue Queue to process
+     * @param resultsCollector Collector to store results in
+     * @param numWorkers Number of worker threads
+     * @param batchSize Tasks each worker takes per queue access
+     * @param workerSetup Settings applied to each worker before it starts
+     */
+    private static void runWorkerThreads(SharedTaskQueue taskQueue, ResultsCollector resultsCollector,
+                                         int numWorkers, int batchSize, Consumer<WorkerThread> workerSetup) {
+        // Create and start worker threads
+        System.out.println("[Main] Creating " + numWorkers + " worker threads...");
+        Thread[] workerThreads = new Thread[numWorkers];
+        
+        for (int i = 0; i < numWorkers; i++) {
+            WorkerThread worker = new WorkerThread(i + 1, taskQueue, resultsCollector, batchSize);
+            workerSetup.accept(worker);
+            workerThreads[i] = new Thread(worker);
+            workerThreads[i].start();
+            System.out.println("[Main] Started worker thread " + (i + 1));
+        }
+        System.out.println();
+
+        // Wait for all worker threads to complete
+        AsyncLogger.flush();
+        System.out.println("[Main] Waiting for all worker threads to complete...");
+        for (int i = 0; i < workerThreads.length; i++) {
+            try {
+                workerThreads[i].join();
+                System.out.println("[Main] Worker thread " + (i + 1) + " has completed.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("[Main] Interrupted while waiting for worker thread " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * Process the queue with a pool that adds workers while tasks back up and retires
+     * them after the keep-alive once the backlog clears.
+     * @param taskQueue Queue to process
+     * @param resultsCollector Collector to store results in
+     * @param args Command line arguments with the pool options
+     * @param workerSetup Settings applied to each worker before it starts
+     * @return Number of workers started over the run
+     * @throws InterruptedException if interrupted while waiting for the pool
+     */
+    private static int runAdaptivePool(SharedTaskQueue taskQueue, ResultsCollector resultsCollector, String[] args,
+                                       Consumer<WorkerThread> workerSetup) throws InterruptedException {
+        int minWorkers = Integer.parseInt(getOption(args, "min-workers", "1"));
+        int maxWorkers = Integer.parseInt(getOption(args, "max-workers", String.valueOf(DEFAULT_MAX_WORKERS)));
+        long keepAliveMillis = Long.parseLong(getOption(args, "keep-alive-ms", "2000"));
+        long targetWaitMillis = Long.parseLong(getOption(args, "target-wait-ms", "500"));
+        AdaptiveWorkerPool pool = new AdaptiveWorkerPool(taskQueue, resultsCollector,
+                minWorkers, maxWorkers, keepAliveMillis, targetWaitMillis, TimeUnit.MILLISECONDS);
+        pool.configureWorkers(workerSetup);
+        System.out.println("[Main] Starting adaptive pool with " + minWorkers + " to " + maxWorkers + " workers...");
+        pool.start();
+        pool.awaitTermination();
+        AsyncLogger.flush();
+        System.out.println("[Main] Adaptive pool completed (started " + pool.getStartedWorkers() + ", peak "
+                + pool.getPeakWorkers() + ", retired " + pool.getRetiredWorkers() + ").\n");
+        return pool.getStartedWorkers();
+    }
+
+    /**
+     * Process the queue on a work-stealing ForkJoinPool sized to the available cores.
+     * @param taskQueue Queue to process
+     * @param resultsCollector Collector to store results in
+     * @param workerSetup Settings applied to each worker before it starts
+     * @return Number of pool worker threads used
+     * @throws InterruptedException if interrupted while waiting for the pool
+     */
+    private static int runWorkStealingEngine(SharedTaskQueue taskQueue, ResultsCollector resultsCollector,
+                                             Consumer<WorkerThread> workerSetup) throws InterruptedException {
+        WorkStealingEngine engine = new WorkStealingEngine(taskQueue, resultsCollector);
+        engine.configureWorkers(workerSetup);
+        System.out.println("[Main] Starting work-stealing engine with " + engine.getParallelism() + " workers...");
+        try {
+            engine.run(taskQueue);
+        } finally {
+            engine.shutdown(10, TimeUnit.SECONDS);
+        }
+        System.out.println("[Main] Work-stealing engine completed.\n");
+        return engine.getParallelism();
+    }
+
+    /**
+     * Process the queue with one virtual thread per task, up to a concurrency limit.
+     * @param taskQueue Queue to process
+     * @param resultsCollector Collector to store results in
+     * @param maxConcurrency Maximum number of tasks in flight
+     * @param workerSetup Settings applied to each worker before it starts
+     * @return Number of lanes that ran tasks
+     * @throws InterruptedException if interrupted while waiting for tasks
+     */
+    private static int runVirtualThreadEngine(SharedTaskQueue taskQueue, ResultsCollector resultsCollector,
+                                               int maxConcurrency, Consumer<WorkerThread> workerSetup)
+            throws InterruptedException {
+        VirtualThreadEngine engine = new VirtualThreadEngine(maxConcurrency, taskQueue, resultsCollector);
+        engine.configureWorkers(workerSetup);
+        if (engine.isVirtual()) {
+            System.out.println("[Main] Starting virtual-thread engine (max concurrency " + maxConcurrency + ")...");
+        } else {
+            System.out.println("[Main] Virtual threads unavailable on this runtime, using one platform thread per task (max concurrency "
+                    + maxConcurrency + ")...");
+        }
+        engine.run(taskQueue);
+        System.out.println("[Main] Virtual-thread engine completed (" + engine.getLanesUsed() + " lanes used).\n");
+        return engine.getLanesUsed();
+    }
+
+    /**
+     * Run the tasks through a three-stage pipeline: parse, process and enrich.
+     * The process stage reuses the WorkerThread logic and gets the most workers,
+     * since it is by far the slowest; per-stage statistics are logged every second.
+     * @param resultsCollector Collector that receives the enriched results
+     * @throws InterruptedException if interrupted while feeding or waiting for the pipeline
+     */
+    private static void runPipeline(ResultsCollector resultsCollector) throws InterruptedException {
+        WorkerThread[] processors = new WorkerThread[NUM_WORKER_THREADS];
+        for (int i = 0; i < processors.length; i++) {
+            processors[i] = new WorkerThread(i + 1, null, resultsCollector);
+        }
+
+        Pipeline<Task, Result> pipeline = Pipeline.<Task>create()
+                .then("parse", 1, 16, (Task task, int workerId) -> {
+                    if (task.getData() == null || task.getData().trim().isEmpty()) {
+                        throw new IllegalArgumentException("Task " + task.getTaskId() + " has no data");
+                    }
+                    return new Task(task.getTaskId(), task.getData().trim(), task.getPriority());
+                })
+                .then("process", NUM_WORKER_THREADS, 16, (Task task, int workerId) ->
+                        processors[workerId - 1].createResult(task))
+                .then("enrich", 2, 16, (Result result, int workerId) -> {
+                    CRC32 checksum = new CRC32();
+                    checksum.update(result.getProcessedData().getBytes());
+                    return new Result(result.getTaskId(),
+                            result.getProcessedData() + " [crc32=" + Long.toHexString(checksum.getValue()) + "]",
+                            result.getWorkerId(), result.getTimestamp());
+                });
+
+        System.out.println("[Main] Starting pipeline with " + pipeline.getStages().size() + " stages...");
+        pipeline.start(resultsCollector::addResult);
+        for (int i = 1; i <= NUM_TASKS; i++) {
+            pipeline.submit(createTask(i));
+        }
+        pipeline.close();
+        while (!pipeline.awaitCompletion(1, TimeUnit.SECONDS)) {
+            pipeline.logStats();
+        }
+        pipeline.logStats();
+        AsyncLogger.flush();
+        System.out.println("[Main] Pipeline completed.\n");
+    }
+
+    /**
+     * Run the same set of tasks through the fixed thread pool and the virtual-thread engine
+     * and print the wall-clock time of each. Tasks are queued up front so only processing is timed.
+     * @param args Command line arguments
+     * @param queueMode Queue mode, fifo or priority
+     * @throws InterruptedException if interrupted while waiting for an engine
+     */
+    private static void compareEngines(String[] args, String queueMode) throws InterruptedException {
+        int maxConcurrency = Integer.parseInt(getOption(args, "max-concurrency", String.valueOf(DEFAULT_MAX_CONCURRENCY)));
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= NUM_TASKS; i++) {
+            tasks.add(createTask(i));
+        }
+
+        String[] engines = {"threads", "virtual"};
+        long[] elapsedMillis = new long[engines.length];
+        int[] resultCounts = new int[engines.length];
+        LatencyHistogram.Summary[] latencies = new LatencyHistogram.Summary[engines.length];
+        ProcessingMetrics metrics = ProcessingMetrics.global();
+        for (int e = 0; e < engines.length; e++) {
+            SharedTaskQueue taskQueue = createTaskQueue(args, queueMode);
+            if (taskQueue.getCapacity() > 0 && taskQueue.getCapacity() < tasks.size()
+                    && taskQueue.getOverflowPolicy() == SharedTaskQueue.OverflowPolicy.BLOCK) {
+                // Engines only start after every task is queued, so a blocked add would never return
+                throw new IllegalArgumentException("The block policy needs a capacity of at least " + tasks.size() + " tasks to compare engines.");
+            }
+            ResultsCollector resultsCollector = new ResultsCollector();
+            List<Task> copies = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                copies.add(new Task(task.getTaskId(), task.getData(), task.getPriority()));
+            }
+            taskQueue.addTasks(copies);
+            taskQueue.close();
+            metrics.reset();
+            metrics.watchQueue(taskQueue);
+
+            long start = System.nanoTime();
+            if (engines[e].equals("threads")) {
+                runWorkerThreads(taskQueue, resultsCollector, NUM_WORKER_THREADS, 1, worker -> { });
+            } else {
+                runVirtualThreadEngine(taskQueue, resultsCollector, maxConcurrency, worker -> { });
+            }
+            elapsedMillis[e] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            resultCounts[e] = resultsCollector.getResultCount();
+            latencies[e] = metrics.snapshot().getEndToEnd();
+        }
+
+        AsyncLogger.flush();
+        System.out.println("========================================");
+        System.out.println("Engine Comparison (" + NUM_TASKS + " tasks)");
+        System.out.println("========================================");
+        for (int e = 0; e < engines.length; e++) {
+            double throughput = elapsedMillis[e] == 0 ? 0 : resultCounts[e] * 1000.0 / elapsedMillis[e];
+            System.out.printf("  %-8s %6d ms  %3d results  %.2f tasks/s  end-to-end p50 %d ms, p99 %d ms%n",
+                    engines[e] + ":", elapsedMillis[e], resultCounts[e], throughput,
+                    TimeUnit.NANOSECONDS.toMillis(latencies[e].getP50Nanos()),
+                    TimeUnit.NANOSECONDS.toMillis(latencies[e].getP99Nanos()));
+        }
+    }
+
+    /**
+     * Create the shared task queue for the selected mode.
+     * @param args Command line arguments
+     * @param queueMode Queue mode, fifo or priority
+     * @return New task queue
+     * @throws IllegalArgumentException if an option value is invalid
+     */
+    private static SharedTaskQueue createTaskQueue(String[] args, String queueMode) {
+        int capacity = Integer.parseInt(getOption(args, "capacity", "0"));
+        SharedTaskQueue.OverflowPolicy overflowPolicy = parseOverflowPolicy(getOption(args, "overflow", "block"));
+        long offerTimeoutMillis = Long.parseLong(getOption(args, "offer-timeout-ms", "100"));
+        TaskOrdering ordering = null;
+        if (queueMode.equals("priority")) {
+            ordering = createTaskOrdering(args);
+        } else if (!queueMode.equals("fifo")) {
+            throw new IllegalArgumentException("Unknown queue mode: " + queueMode);
+        }
+        SharedTaskQueue taskQueue = new SharedTaskQueue(ordering, capacity, overflowPolicy, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        taskQueue.setTaskTimeout(Long.parseLong(getOption(args, "task-timeout-ms", "0")), TimeUnit.MILLISECONDS);
+        return taskQueue;
+    }
+
+    /**
+     * Create the result cache if the --cache-size option enables one.
+     * @param args Command line arguments
+     * @return New cache, or null to process every task
+     * @throws IllegalArgumentException if the cache size or policy is invalid
+     */
+    private static MemoizingCache<String, String> createResultCache(String[] args) {
+        long size = Long.parseLong(getOption(args, "cache-size", "0"));
+        if (size == 0) {
+            return null;
+        }
+        String policy = getOption(args, "cache-policy", "tinylfu");
+        if (policy.equals("lru")) {
+            return new MemoizingCache<>(size, MemoizingCache.EvictionPolicy.LRU);
+        }
+        if (!policy.equals("tinylfu")) {
+            throw new IllegalArgumentException("Unknown cache policy: " + policy);
+        }
+        return new MemoizingCache<>(size, MemoizingCache.EvictionPolicy.TINY_LFU);
+    }
+
+    /**
+     * Create the retry scheduler if the --max-attempts option enables retries.
+     * Dead-lettered tasks are reported to the collector so they are not counted as missing.
+     * @param args Command line arguments
+     * @param taskQueue Queue failed tasks are put back into
+     * @param resultsCollector Collector to report dead-lettered tasks to
+     * @return New scheduler, or null to drop failed tasks
+     * @throws IllegalArgumentException if the attempt count or backoff is invalid
+     */
+    private static RetryScheduler createRetryScheduler(String[] args, SharedTaskQueue taskQueue, ResultsCollector resultsCollector) {
+        int maxAttempts = Integer.parseInt(getOption(args, "max-attempts", "0"));
+        if (maxAttempts == 0) {
+            return null;
+        }
+        long backoffMillis = Long.parseLong(getOption(args, "retry-backoff-ms", "100"));
+        long maxBackoffMillis = Long.parseLong(getOption(args, "retry-max-backoff-ms", "10000"));
+        RetryPolicy policy = new RetryPolicy(maxAttempts, backoffMillis, maxBackoffMillis, RETRY_BACKOFF_MULTIPLIER, TimeUnit.MILLISECONDS);
+        RetryScheduler retries = new RetryScheduler(taskQueue, policy, new DeadLetterQueue());
+        retries.onDeadLetter(resultsCollector::recordDeadLettered);
+        System.out.println("[Main] Retries enabled: " + policy);
+        return retries;
+    }
+
+    /**
+     * Print the retry count and the dead-lettered tasks, and optionally write the tasks
+     * to a binary task file so they can be run again with --input.
+     * @param retries Scheduler used for the run
+     * @param deadLetterFile File to write the tasks to, or null
+     */
+    private static void displayDeadLetters(RetryScheduler retries, String deadLetterFile) {
+        DeadLetterQueue deadLetters = retries.getDeadLetters();
+        System.out.println("[Main] Retries scheduled: " + retries.getRetryCount() + ", dead-lettered tasks: " + deadLetters.size());
+        for (DeadLetterQueue.Entry entry : deadLetters.getEntries()) {
+            System.out.println("  " + entry);
+        }
+        if (deadLetterFile == null || deadLetters.isEmpty()) {
+            return;
+        }
+        try (RecordFileWriter<Task> writer = new RecordFileWriter<>(Paths.get(deadLetterFile), new TaskCodec())) {
+            int written = deadLetters.drainTo(writer);
+            System.out.println("[Main] Wrote " + written + " dead-lettered tasks to " + deadLetterFile);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("[Main] Error writing dead-letter file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create the off-heap result store if the --result-store option asks for one.
+     * @param args Command line arguments
+     * @return New store, or null to keep results in the collector
+     * @throws IllegalArgumentException if the option value is unknown
+     */
+    private static OffHeapResultStore createResultStore(String[] args) {
+        String mode = getOption(args, "result-store", "heap");
+        if (mode.equals("offheap")) {
+            return new OffHeapResultStore();
+        }
+        if (!mode.equals("heap")) {
+            throw new IllegalArgumentException("Unknown result store: " + mode);
+        }
+        return null;
+    }
+
+    /**
+     * Create the task ordering for priority mode.
+     * @param args Command line arguments
+     * @return New task ordering
+     * @throws IllegalArgumentException if an option value is invalid
+     */
+    private static TaskOrdering createTaskOrdering(String[] args) {
+        String order = getOption(args, "priority-order", "high");
+        TaskOrdering.Direction direction;
+        if (order.equals("high")) {
+            direction = TaskOrdering.Direction.HIGHEST_FIRST;
+        } else if (order.equals("low")) {
+            direction = TaskOrdering.Direction.LOWEST_FIRST;
+        } else {
+            throw new IllegalArgumentException("Unknown priority order: " + order);
+        }
+        long agingMillis = Long.parseLong(getOption(args, "aging-ms", "0"));
+        return new TaskOrdering(direction, agingMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Parse the --overflow option.
+     * @param value Option value
+     * @return Overflow policy
+     * @throws IllegalArgumentException if the value is not a known policy
+     */
+    private static SharedTaskQueue.OverflowPolicy parseOverflowPolicy(String value) {
+        switch (value) {
+            case "block":
+                return SharedTaskQueue.OverflowPolicy.BLOCK;
+            case "timeout":
+                return SharedTaskQueue.OverflowPolicy.TIMEOUT;
+            case "reject":
+                return SharedTaskQueue.OverflowPolicy.REJECT;
+            case "drop-lowest":
+                return SharedTaskQueue.OverflowPolicy.DROP_LOWEST_PRIORITY;
+            default:
+                throw new IllegalArgumentException("Unknown overflow policy: " + value);
+        }
+    }
+
+    /**
+     * Check whether a --name flag was given on the command line.
+     * @param args Command line arguments
+     * @param name Flag name without the leading dashes
+     * @return true if the flag is present
+     */
+    private static boolean hasFlag(String[] args, String name) {
+        String flag = "--" + name;
+        for (String arg : args) {
+            if (arg.equals(flag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Look up a --name=value command line option.
+     * @param args Command line arguments
+     * @param name Option name without the leading dashes
+     * @param defaultValue Value returned when the option is absent
+     * @return Option value
+     */
+    private static String getOption(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Open the task journal and report what it recovered.
+     * @param args Command line arguments with the journal options
+     * @param journalDir Journal directory
+     * @return Open journal
+     * @throws IOException if the journal cannot be opened
+     */
+    private static TaskJournal openJournal(String[] args, String journalDir) throws IOException {
+        long syncMillis = Long.parseLong(getOption(args, "journal-sync-ms", "10"));
+        TaskJournal journal = new TaskJournal(Paths.get(journalDir), TaskJournal.DEFAULT_SEGMENT_BYTES,
+                syncMillis, TimeUnit.MILLISECONDS);
+        AsyncLogger.flush();
+        System.out.println("[Main] Journal " + journalDir + ": " + journal.getRecoveredTasks().size()
+                + " unacknowledged tasks to replay (group commit every " + syncMillis + " ms)");
+        return journal;
+    }
+
+    /**
+     * Close the task journal and report its activity.
+     * @param journal Journal to close
+     */
+    private static void closeJournal(TaskJournal journal) {
+        int pending = journal.getPendingCount();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("[Main] Error closing journal: " + e.getMessage());
+        }
+        AsyncLogger.flush();
+        System.out.println("[Main] Journal: " + journal.getAppendCount() + " records, " + journal.getSyncCount()
+                + " group commits, " + pending + " tasks left unacknowledged");
+    }
+
+    /**
+     * Replay recovered tasks, generate or load new ones, report queue backpressure, and close the queue,
+     * also when production fails part way.
+     * Runs on the main thread, or on a producer thread in streaming mode.
+     * @param taskQueue Queue to add tasks to
+     * @param recoveredTasks Unacknowledged tasks from the journal, queued first
+     * @param firstTaskId ID of the first generated task
+     * @param input Task file to load instead of generating tasks, or null
+     */
+    private static void produceTasks(SharedTaskQueue taskQueue, ResultsCollector resultsCollector,
+                                     List<Task> recoveredTasks, int firstTaskId, RecordFileReader<Task> input) {
+        try {
+            if (!recoveredTasks.isEmpty()) {
+                System.out.println("[Main] Replaying " + recoveredTasks.size() + " tasks from the journal...");
+                for (Task task : recoveredTasks) {
+                    resultsCollector.expectTask(task.getTaskId());
+                }
+                taskQueue.addTasks(new ArrayList<>(recoveredTasks));
+            }
+
+            if (input != null) {
+                loadTasks(taskQueue, resultsCollector, input);
+            } else {
+                // Generate and add tasks to the queue
+                System.out.println("[Main] Generating " + NUM_TASKS + " tasks...");
+                generateTasks(taskQueue, resultsCollector, firstTaskId, NUM_TASKS);
+            }
+            AsyncLogger.flush();
+            System.out.println("[Main] All tasks added to queue.");
+            if (taskQueue.getCapacity() > 0) {
+                System.out.println("[Main] Queue capacity " + taskQueue.getCapacity() + " (" + taskQueue.getOverflowPolicy()
+                        + "): producer stalled " + TimeUnit.NANOSECONDS.toMillis(taskQueue.getProducerStallNanos())
+                        + " ms, rejected " + taskQueue.getRejectedCount() + ", dropped " + taskQueue.getDroppedCount());
+            }
+            System.out.println();
+        } finally {
+            // Close the queue to signal no more tasks will be added, even if production failed,
+            // so the workers still drain what was queued and stop
+            taskQueue.close();
+        }
+    }
+
+    /**
+     * Load every task from a binary task file into the queue, a batch at a time.
+     * @param taskQueue Queue to add tasks to
+     * @param resultsCollector Collector to register the task IDs with
+     * @param input Open task file
+     */
+    private static void loadTasks(SharedTaskQueue taskQueue, ResultsCollector resultsCollector, RecordFileReader<Task> input) {
+        long start = System.nanoTime();
+        long loaded = 0;
+        List<Task> batch = new ArrayList<>(TASK_FILE_BATCH);
+        try {
+            while (input.readBatch(batch, TASK_FILE_BATCH) > 0) {
+                for (Task task : batch) {
+                    resultsCollector.expectTask(task.getTaskId());
+                }
+                loaded += taskQueue.addTasks(batch);
+                batch.clear();
+            }
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("[Main] Error loading tasks: " + e.getMessage());
+        }
+        System.out.println("[Main] Loaded " + loaded + " tasks in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    /**
+     * Write generated tasks to a binary task file for use with --input.
+     * @param path File to write
+     * @param count Number of tasks
+     */
+    private static void createTaskFile(Path path, int count) {
+        long start = System.nanoTime();
+        try (RecordFileWriter<Task> writer = new RecordFileWriter<>(path, new TaskCodec())) {
+            for (int i = 1; i <= count; i++) {
+                writer.write(createTask(i));
+            }
+        } catch (IOException e) {
+            System.err.println("[Main] Error writing task file: " + e.getMessage());
+            return;
+        }
+        try {
+            System.out.println("[Main] Wrote " + count + " tasks (" + Files.size(path) + " bytes) to " + path + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (IOException e) {
+            System.out.println("[Main] Wrote " + count + " tasks to " + path);
+        }
+    }
+
+    /**
+     * Close a record file, reporting instead of throwing on failure.
+     * @param file Reader or writer to close, or null
+     */
+    private static void closeQuietly(AutoCloseable file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (Exception e) {
+            System.err.println("[Main] Error closing file: " + e.getMessage());
+        }
+    }
+
     /**
      * Generate tasks and add them to the queue.
      * @param taskQueue Queue to add tasks to
+     * @param resultsCollector Collector to register the task IDs with
+     * @param firstTaskId ID of the first task
      * @param numTasks Number of tasks to generate
      */
-    private static void generateTasks(SharedTaskQueue taskQueue, int numTasks) {
+    private static void generateTasks(SharedTaskQueue taskQueue, ResultsCollector resultsCollector, int firstTaskId, int numTasks) {
         try {
-            for (int i = 1; i <= numTasks; i++) {
-                String taskData = "Data-" + i + "-" + generateRandomData();
-                Task task = new Task(i, taskData, i % 3); // Priority cycles 0, 1, 2
+            for (int i = firstTaskId; i < firstTaskId + numTasks; i++) {
+                Task task = createTask(i);
+                resultsCollector.expectTask(i);
                 
                 try {
-                    taskQueue.addTask(task);
+                    if (!taskQueue.addTask(task)) {
+                        System.err.println("[Main] Task " + i + " rejected: queue is full");
+                    }
                 } catch (IllegalStateException e) {
                     System.err.println("[Main] Error adding task " + i + ": " + e.getMessage());
                 } catch (NullPointerException e) {
@@ -110,6 +867,16 @@ public class DataProcessingSystem {
         }
     }
 
+    /**
+     * Create a task with random data.
+     * @param taskId ID of the task
+     * @return New task
+     */
+    private static Task createTask(int taskId) {
+        String taskData = "Data-" + taskId + "-" + generateRandomData();
+        return new Task(taskId, taskData, taskId % 3); // Priority cycles 0, 1, 2
+    }
+
     /**
      * Generate random data string for task.
      * @return Random data string
@@ -124,8 +891,10 @@ public class DataProcessingSystem {
      * Display results and statistics.
      * @param resultsCollector Collector containing all results
      * @param expectedTasks Expected number of tasks
+     * @param numWorkers Number of workers that processed tasks
      */
-    private static void displayResults(ResultsCollector resultsCollector, int expectedTasks) {
+    private static void displayResults(ResultsCollector resultsCollector, int expectedTasks, int numWorkers) {
+        AsyncLogger.flush();
         System.out.println("========================================");
         System.out.println("Processing Results");
         System.out.println("========================================");
@@ -138,7 +907,7 @@ public class DataProcessingSystem {
             System.out.println("Processed Results: " + actualResults);
             System.out.println();
             
-            if (actualResults == 0) {
+            if (actualResults == 0 && resultsCollector.getAbandonedCount() == 0) {
                 System.out.println("WARNING: No results were collected!");
                 return;
             }
@@ -146,16 +915,16 @@ public class DataProcessingSystem {
             // Display results by worker
             System.out.println("Results by Worker Thread:");
             System.out.println("-------------------------");
-            for (int workerId = 1; workerId <= NUM_WORKER_THREADS; workerId++) {
-                int count = 0;
-                for (Result result : results) {
-                    if (result.getWorkerId() == workerId) {
-                        count++;
-                    }
-                }
-                System.out.println("  Worker " + workerId + ": " + count + " tasks processed");
+            Map<Integer, Integer> countsByWorker = new HashMap<>();
+            for (Result result : results) {
+                countsByWorker.merge(result.getWorkerId(), 1, Integer::sum);
+            }
+            for (int workerId = 1; workerId <= numWorkers; workerId++) {
+                System.out.println("  Worker " + workerId + ": " + countsByWorker.getOrDefault(workerId, 0) + " tasks processed");
             }
             System.out.println();
+
+            displayLatencies(ProcessingMetrics.global().snapshot());
             
             // Display all results
             System.out.println("All Results:");
@@ -166,17 +935,178 @@ public class DataProcessingSystem {
             System.out.println();
             
             // Check for duplicates or missing tasks
-            if (actualResults != expectedTasks) {
-                System.out.println("WARNING: Result count mismatch!");
-                System.out.println("  Expected: " + expectedTasks + ", Actual: " + actualResults);
-            } else {
-                System.out.println("SUCCESS: All tasks processed successfully!");
-            }
+            displayAccounting(resultsCollector, expectedTasks, actualResults);
             
         } catch (Exception e) {
             System.err.println("[Main] Error displaying results: " + e.getMessage());
             e.printStackTrace();
         }
     }
-}
 
+    /**
+     * Display results kept in an off-heap store, reading them through a cursor and
+     * counting per worker with a column scan instead of building Result objects.
+     * @param store Store containing all results
+     * @param resultsCollector Collector that fed the store, for duplicate and missing task accounting
+     * @param expectedTasks Expected number of tasks
+     * @param numWorkers Number of workers that processed tasks
+     */
+    private static void displayStoredResults(OffHeapResultStore store, ResultsCollector resultsCollector,
+                                             int expectedTasks, int numWorkers) {
+        AsyncLogger.flush();
+        System.out.println("========================================");
+        System.out.println("Processing Results (off-heap store)");
+        System.out.println("========================================");
+
+        long actualResults = store.size();
+        System.out.println("Expected Tasks: " + expectedTasks);
+        System.out.println("Processed Results: " + actualResults);
+        System.out.println("Off-heap Payload Memory: " + store.getOffHeapBytes() / 1024 + " KB");
+        System.out.println();
+
+        if (actualResults == 0 && resultsCollector.getAbandonedCount() == 0) {
+            System.out.println("WARNING: No results were collected!");
+            return;
+        }
+
+        System.out.println("Results by Worker Thread:");
+        System.out.println("-------------------------");
+        Map<Integer, Long> countsByWorker = store.countByWorker();
+        for (int workerId = 1; workerId <= numWorkers; workerId++) {
+            System.out.println("  Worker " + workerId + ": " + countsByWorker.getOrDefault(workerId, 0L) + " tasks processed");
+        }
+        System.out.println();
+
+        displayLatencies(ProcessingMetrics.global().snapshot());
+
+        System.out.println("All Results:");
+        System.out.println("------------");
+        OffHeapResultStore.Cursor cursor = store.cursor();
+        while (cursor.next()) {
+            System.out.println("  Result{taskId=" + cursor.taskId() + ", processedData='" + cursor.dataAsString()
+                    + "', workerId=" + cursor.workerId() + ", timestamp=" + cursor.timestamp() + "}");
+        }
+        System.out.println();
+
+        displayAccounting(resultsCollector, expectedTasks, actualResults);
+    }
+
+    /**
+     * Display statistics for a streaming run; individual results were already logged by the consumer.
+     * @param consumer Consumer that received the results
+     * @param resultsCollector Collector that fed the consumer, for duplicate and missing task accounting
+     * @param expectedTasks Expected number of tasks
+     * @param numWorkers Number of workers that processed tasks
+     */
+    private static void displayStreamingResults(StreamingResultConsumer consumer, ResultsCollector resultsCollector,
+                                                int expectedTasks, int numWorkers) {
+        AsyncLogger.flush();
+        System.out.println("========================================");
+        System.out.println("Streaming Results");
+        System.out.println("========================================");
+
+        long actualResults = consumer.getResultCount();
+        System.out.println("Expected Tasks: " + expectedTasks);
+        System.out.println("Streamed Results: " + actualResults);
+        long firstResultNanos = consumer.getTimeToFirstResultNanos();
+        if (firstResultNanos >= 0) {
+            System.out.println("Time to First Result: " + TimeUnit.NANOSECONDS.toMillis(firstResultNanos) + " ms");
+        }
+        System.out.println();
+
+        if (actualResults == 0 && resultsCollector.getAbandonedCount() == 0) {
+            System.out.println("WARNING: No results were streamed!");
+            return;
+        }
+
+        System.out.println("Results by Worker Thread:");
+        System.out.println("-------------------------");
+        for (int workerId = 1; workerId <= numWorkers; workerId++) {
+            System.out.println("  Worker " + workerId + ": " + consumer.getResultCount(workerId) + " tasks processed");
+        }
+        System.out.println();
+
+        displayLatencies(ProcessingMetrics.global().snapshot());
+
+        displayAccounting(resultsCollector, expectedTasks, actualResults);
+    }
+
+    /**
+     * Report whether every task produced exactly one result.
+     * Duplicate results dropped by the collector are counted, tasks that passed their
+     * deadline, were dead-lettered, or were rejected or dropped by a full queue are
+     * reported separately from missing ones, and when task IDs were registered with the
+     * collector the missing ones are listed by ID.
+     * @param resultsCollector Collector that received the results
+     * @param expectedTasks Expected number of tasks
+     * @param actualResults Number of results kept
+     */
+    private static void displayAccounting(ResultsCollector resultsCollector, int expectedTasks, long actualResults) {
+        long duplicates = resultsCollector.getDuplicateCount();
+        long missing = resultsCollector.getMissingCount();
+        long abandoned = resultsCollector.getAbandonedCount();
+        long deadLettered = resultsCollector.getDeadLetterCount();
+        long rejected = resultsCollector.getRejectedCount();
+        long dropped = resultsCollector.getDroppedCount();
+        if (duplicates > 0) {
+            System.out.println("Duplicate Results Dropped: " + duplicates);
+        }
+        if (abandoned > deadLettered + rejected + dropped || resultsCollector.getLateCount() > 0) {
+            System.out.println("Deadlines: " + resultsCollector.getExpiredCount() + " expired in queue, "
+                    + resultsCollector.getTimedOutCount() + " cancelled while running, "
+                    + resultsCollector.getLateCount() + " results late");
+        }
+        if (deadLettered > 0) {
+            System.out.println("Dead-Lettered Tasks: " + deadLettered);
+        }
+        if (rejected > 0 || dropped > 0) {
+            System.out.println("Queue Overflow: " + rejected + " rejected, " + dropped + " dropped");
+        }
+        if (missing > 0) {
+            StringBuilder ids = new StringBuilder();
+            int[] listed = new int[1];
+            resultsCollector.forEachMissingTask(taskId -> {
+                if (listed[0]++ < MAX_MISSING_LISTED) {
+                    ids.append(' ').append(taskId);
+                }
+            });
+            System.out.println("Missing Tasks (" + missing + "):" + ids + (missing > MAX_MISSING_LISTED ? " ..." : ""));
+        }
+        if (actualResults + abandoned != expectedTasks || missing > 0) {
+            System.out.println("WARNING: Result count mismatch!");
+            System.out.println("  Expected: " + expectedTasks + ", Actual: " + actualResults
+                    + (abandoned > 0 ? " (+" + abandoned + " abandoned)" : ""));
+        } else if (abandoned > 0) {
+            System.out.println("SUCCESS: Every task was processed or accounted for as abandoned.");
+        } else {
+            System.out.println("SUCCESS: All tasks processed successfully!");
+        }
+    }
+
+    /**
+     * Display the latency histograms recorded during the run.
+     * @param snapshot Metrics snapshot taken after processing finished
+     */
+    private static void displayLatencies(MetricsSnapshot snapshot) {
+        System.out.println("Latency:");
+        System.out.println("--------");
+        System.out.println("  Queue wait:  " + snapshot.getWaitTime());
+        System.out.println("  Processing:  " + snapshot.getProcessingTime());
+        System.out.println("  End-to-end:  " + snapshot.getEndToEnd());
+        System.out.println();
+    }
+
+    /**
+     * Log a metrics snapshot on a fixed period while the system runs.
+     * @param metrics Metrics to report
+     * @param intervalMillis Time between snapshots in milliseconds
+     */
+    private static void startMetricsReporting(ProcessingMetrics metrics, long intervalMillis) {
+        MetricsSnapshot[] previous = new MetricsSnapshot[1];
+        metrics.startReporting(intervalMillis, TimeUnit.MILLISECONDS, snapshot -> {
+            AsyncLogger.info(String.format("[Metrics] interval=%.1f/s %s",
+                    snapshot.getThroughputPerSecondSince(previous[0]), snapshot));
+            previous[0] = snapshot;
+        });
+    }
+}
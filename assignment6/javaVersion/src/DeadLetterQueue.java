@@ -0,0 +1,149 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Holding area for tasks that failed every attempt their retry policy allowed.
+ * Entries keep the task together with the last error, so they can be inspected after
+ * a run, and the tasks can be replayed into a queue or written out once the cause
+ * has been fixed.
+ */
+public class DeadLetterQueue {
+    private final ConcurrentLinkedQueue<Entry> entries;
+
+    /**
+     * Constructor for an empty dead-letter queue.
+     */
+    public DeadLetterQueue() {
+        this.entries = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Park a task that will not be retried.
+     * @param task Failed task
+     * @param cause Exception of the last attempt
+     */
+    public void add(Task task, Throwable cause) {
+        entries.add(new Entry(task, cause, System.currentTimeMillis()));
+    }
+
+    /**
+     * Get the number of parked tasks.
+     * @return Entry count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Check whether any task has been parked.
+     * @return true if the queue is empty
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Get a copy of the parked entries, oldest first.
+     * @return Entries
+     */
+    public List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    /**
+     * Remove every parked task and hand it to a consumer, oldest first.
+     * The tasks' attempt counts are reset so they get a full set of attempts again.
+     * @param sink Receives the tasks, e.g. SharedTaskQueue::addTask or a RecordFileWriter
+     * @return Number of tasks drained
+     */
+    public int drainTo(Consumer<? super Task> sink) {
+        int drained = 0;
+        Entry entry;
+        while ((entry = entries.poll()) != null) {
+            entry.task.resetAttempts();
+            sink.accept(entry.task);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Put every parked task back into a queue for another round of attempts.
+     * Attempt counts are reset; tasks the queue turns away stay in the dead-letter queue.
+     * @param queue Open queue to add the tasks to
+     * @return Number of tasks replayed
+     * @throws IllegalStateException if the queue is closed
+     */
+    public int replay(SharedTaskQueue queue) {
+        int replayed = 0;
+        List<Entry> rejected = new ArrayList<>();
+        Entry entry;
+        while ((entry = entries.poll()) != null) {
+            entry.task.resetAttempts();
+            if (queue.addTask(entry.task)) {
+                replayed++;
+            } else {
+                rejected.add(entry);
+            }
+        }
+        entries.addAll(rejected);
+        return replayed;
+    }
+
+    /**
+     * One dead-lettered task.
+     */
+    public static final class Entry {
+        private final Task task;
+        private final Throwable cause;
+        private final long timestamp;
+
+        /**
+         * Constructor for an entry.
+         * @param task Failed task
+         * @param cause Exception of the last attempt
+         * @param timestamp Time the task was parked, from System.currentTimeMillis()
+         */
+        private Entry(Task task, Throwable cause, long timestamp) {
+            this.task = task;
+            this.cause = cause;
+            this.timestamp = timestamp;
+        }
+
+        /**
+         * Get the failed task.
+         * @return Task
+         */
+        public Task getTask() {
+            return task;
+        }
+
+        /**
+         * Get the exception of the last attempt.
+         * @return Cause
+         */
+        public Throwable getCause() {
+            return cause;
+        }
+
+        /**
+         * Get the time the task was parked.
+         * @return Timestamp from System.currentTimeMillis()
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * String representation of the entry for logging.
+         * @return String representation
+         */
+        @Override
+        public String toString() {
+            return "DeadLetter{taskId=" + task.getTaskId() + ", attempts=" + task.getAttempts()
+                    + ", cause=" + cause + ", timestamp=" + timestamp + "}";
+        }
+    }
+}
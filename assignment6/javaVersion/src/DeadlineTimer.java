@@ -0,0 +1,101 @@
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels tasks that are still running at their deadline.
+ * A worker arms a Guard before processing a task that has a deadline; if the task is
+ * not finished by then, a single timer thread interrupts the worker, which turns the
+ * interrupt into a TaskTimeoutException instead of waiting for the work to complete.
+ * Finished tasks disarm their guard, which also removes the pending timer entry.
+ * One shared timer serves every engine, like ProcessingMetrics.
+ */
+public class DeadlineTimer {
+    private static final DeadlineTimer GLOBAL = new DeadlineTimer();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * Constructor starts the timer thread lazily, on the first armed deadline.
+     */
+    public DeadlineTimer() {
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "deadline-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most guards are disarmed long before they fire, so do not let them pile up
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Get the shared timer used by the workers.
+     * @return Shared timer
+     */
+    public static DeadlineTimer global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Start watching the calling thread while it processes a task.
+     * @param task Task about to be processed
+     * @return Guard to disarm when processing ends, or null if the task has no deadline
+     */
+    public Guard arm(Task task) {
+        long deadline = task.getDeadlineNanos();
+        if (deadline == 0) {
+            return null;
+        }
+        Guard guard = new Guard(Thread.currentThread());
+        guard.timeout = scheduler.schedule(guard::expire, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        return guard;
+    }
+
+    /**
+     * Deadline watch over one task running on one thread.
+     * The timer and the worker race to finish the guard; whichever comes first wins, so
+     * a task that completes just in time is never interrupted afterwards.
+     */
+    public static final class Guard {
+        private final Thread thread;
+        private ScheduledFuture<?> timeout;
+        private boolean finished;
+        private boolean expired;
+
+        /**
+         * Constructor for a guard.
+         * @param thread Thread processing the task
+         */
+        private Guard(Thread thread) {
+            this.thread = thread;
+        }
+
+        /**
+         * Stop watching the task. Safe to call more than once.
+         * If the deadline already fired, the interrupt it raised is cleared.
+         * @return true if the task was cancelled at its deadline
+         */
+        public boolean disarm() {
+            synchronized (this) {
+                finished = true;
+            }
+            timeout.cancel(false);
+            if (expired) {
+                // Only the watched thread disarms, so this clears the timer's interrupt
+                Thread.interrupted();
+            }
+            return expired;
+        }
+
+        /**
+         * Timer action: interrupt the thread if the task is still running.
+         */
+        private synchronized void expire() {
+            if (!finished) {
+                finished = true;
+                expired = true;
+                thread.interrupt();
+            }
+        }
+    }
+}
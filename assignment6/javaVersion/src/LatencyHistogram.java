@@ -0,0 +1,244 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * Values below 128 ns get a bucket each; above that, every power of two is split into
+ * 64 equal sub-buckets, so any recorded value is reported within about 1.6% of its
+ * true value while the whole nanosecond range fits in a few thousand counters.
+ * Recording is lock-free and never allocates, so it can sit on the worker hot path.
+ */
+public class LatencyHistogram {
+    // Values below this many nanoseconds are counted exactly
+    private static final int LINEAR_BUCKETS = 128;
+    // Sub-buckets per power of two above the linear range
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Enough buckets for any non-negative long value
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount;
+    private final LongAdder totalNanos;
+    private final AtomicLong maxNanos;
+
+    /**
+     * Constructor for an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.totalCount = new LongAdder();
+        this.totalNanos = new LongAdder();
+        this.maxNanos = new AtomicLong();
+    }
+
+    /**
+     * Record one latency sample. Negative values are counted as zero.
+     * @param nanos Latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.increment();
+        totalNanos.add(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Take a consistent-enough copy of the histogram for reporting.
+     * Samples recorded while the copy is made may or may not be included.
+     * @return Summary of the samples recorded so far
+     */
+    public Summary summarize() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        long mean = count == 0 ? 0 : totalNanos.sum() / Math.max(1, totalCount.sum());
+        return new Summary(count, mean,
+                valueAt(copy, count, 0.50), valueAt(copy, count, 0.90),
+                valueAt(copy, count, 0.99), valueAt(copy, count, 0.999),
+                maxNanos.get());
+    }
+
+    /**
+     * Discard all recorded samples.
+     * Not atomic with respect to concurrent record() calls.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * Map a value to its bucket.
+     * @param value Non-negative value in nanoseconds
+     * @return Bucket index
+     */
+    private static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        // Keep the top SUB_BUCKET_BITS + 1 bits of the value
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Get the highest value that falls into a bucket.
+     * @param index Bucket index
+     * @return Upper bound of the bucket in nanoseconds
+     */
+    private static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Find the value at a percentile of a copied bucket array.
+     * @param copy Bucket counts
+     * @param count Total of the bucket counts
+     * @param fraction Percentile as a fraction between 0 and 1
+     * @return Value at the percentile in nanoseconds, 0 if there are no samples
+     */
+    private long valueAt(long[] copy, long count, double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < copy.length; i++) {
+            seen += copy[i];
+            if (seen >= rank) {
+                // Never report more than the largest sample actually seen
+                return Math.min(bucketUpperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Immutable percentile summary of a histogram.
+     */
+    public static class Summary {
+        private final long count;
+        private final long meanNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+        private final long maxNanos;
+
+        /**
+         * Constructor for a summary.
+         * @param count Number of samples
+         * @param meanNanos Mean latency
+         * @param p50Nanos Median latency
+         * @param p90Nanos 90th percentile latency
+         * @param p99Nanos 99th percentile latency
+         * @param p999Nanos 99.9th percentile latency
+         * @param maxNanos Largest latency
+         */
+        Summary(long count, long meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+            this.count = count;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Get the number of samples.
+         * @return Sample count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Get the mean latency.
+         * @return Mean in nanoseconds
+         */
+        public long getMeanNanos() {
+            return meanNanos;
+        }
+
+        /**
+         * Get the median latency.
+         * @return 50th percentile in nanoseconds
+         */
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        /**
+         * Get the 90th percentile latency.
+         * @return 90th percentile in nanoseconds
+         */
+        public long getP90Nanos() {
+            return p90Nanos;
+        }
+
+        /**
+         * Get the 99th percentile latency.
+         * @return 99th percentile in nanoseconds
+         */
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        /**
+         * Get the 99.9th percentile latency.
+         * @return 99.9th percentile in nanoseconds
+         */
+        public long getP999Nanos() {
+            return p999Nanos;
+        }
+
+        /**
+         * Get the largest latency.
+         * @return Maximum in nanoseconds
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Format the summary in milliseconds.
+         * @return Summary string
+         */
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%.1fms p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms",
+                    count, toMillis(meanNanos), toMillis(p50Nanos), toMillis(p90Nanos),
+                    toMillis(p99Nanos), toMillis(p999Nanos), toMillis(maxNanos));
+        }
+
+        /**
+         * Convert nanoseconds to fractional milliseconds.
+         * @param nanos Duration in nanoseconds
+         * @return Duration in milliseconds
+         */
+        private static double toMillis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
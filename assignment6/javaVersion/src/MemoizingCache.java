@@ -0,0 +1,412 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache that memoizes an expensive computation per key.
+ * Concurrent requests for a key that is not cached are coalesced: one caller computes the
+ * value and the others wait for it ("single flight"), so identical work is done once.
+ * Entries live in segments chosen by key hash, each guarded by its own lock.
+ * Two eviction policies are supported:
+ * <ul>
+ *   <li>LRU evicts the least recently used entry.</li>
+ *   <li>TINY_LFU (W-TinyLFU) puts new entries in a small LRU window; an entry leaving the
+ *       window only replaces the main area's LRU victim if a frequency sketch says it has
+ *       been requested more often, so a burst of one-off keys cannot flush popular ones.</li>
+ * </ul>
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class MemoizingCache<K, V> {
+    /**
+     * How the cache picks which entry to drop when it is full.
+     */
+    public enum EvictionPolicy {
+        LRU,
+        TINY_LFU
+    }
+
+    /**
+     * Computes the value for a key that is not cached.
+     * @param <K> Key type
+     * @param <V> Value type
+     */
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        /**
+         * Compute a value.
+         * @param key Key to compute the value for
+         * @return Value, which must not be null
+         * @throws InterruptedException if interrupted while computing
+         */
+        V load(K key) throws InterruptedException;
+    }
+
+    // Entries per segment below which the cache uses fewer segments
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+    // Share of each segment given to the admission window under TINY_LFU
+    private static final int WINDOW_PERCENT = 1;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final long capacity;
+    private final EvictionPolicy policy;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder coalesced;
+    private final LongAdder evictions;
+
+    /**
+     * Constructor for a cache.
+     * @param capacity Maximum number of cached entries
+     * @param policy Eviction policy
+     * @throws IllegalArgumentException if capacity is not positive or policy is null
+     */
+    @SuppressWarnings("unchecked")
+    public MemoizingCache(long capacity, EvictionPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Eviction policy cannot be null.");
+        }
+        // Power of two near twice the core count, but small caches keep whole segments
+        int segmentCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        while (segmentCount > 1 && capacity / segmentCount < MIN_SEGMENT_CAPACITY) {
+            segmentCount >>>= 1;
+        }
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // Spread the remainder so the segment capacities add up to the total
+            long segmentCapacity = capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0);
+            segments[i] = new Segment<>((int) Math.min(Integer.MAX_VALUE, segmentCapacity), policy);
+        }
+        this.segmentMask = segmentCount - 1;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.coalesced = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Get the cached value for a key, computing and caching it on a miss.
+     * If another thread is already computing the same key, wait for its value instead.
+     * @param key Key to look up, not null
+     * @param loader Computes the value on a miss
+     * @return Cached or computed value
+     * @throws InterruptedException if interrupted while computing or waiting
+     */
+    public V get(K key, Loader<? super K, ? extends V> loader) throws InterruptedException {
+        Segment<K, V> segment = segmentFor(key);
+        while (true) {
+            V value = segment.get(key);
+            if (value != null) {
+                hits.increment();
+                return value;
+            }
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+            if (leader != null) {
+                coalesced.increment();
+                try {
+                    return leader.get();
+                } catch (ExecutionException e) {
+                    // The leader failed, e.g. it was interrupted; compute the value here instead
+                    continue;
+                }
+            }
+            try {
+                // The value may have been cached between the lookup and claiming the flight
+                value = segment.get(key);
+                if (value != null) {
+                    hits.increment();
+                } else {
+                    misses.increment();
+                    value = loader.load(key);
+                    if (value == null) {
+                        throw new NullPointerException("Loader returned null for key " + key);
+                    }
+                    evictions.add(segment.put(key, value));
+                }
+                flight.complete(value);
+                return value;
+            } catch (Throwable e) {
+                // Release the waiting threads; they retry the computation themselves
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+    }
+
+    /**
+     * Get the number of cached entries.
+     * @return Entry count
+     */
+    public long size() {
+        long total = 0;
+        for (Segment<K, V> segment : segments) {
+            total += segment.size();
+        }
+        return total;
+    }
+
+    /**
+     * Get the maximum number of cached entries.
+     * @return Capacity
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the eviction policy.
+     * @return Policy
+     */
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Get the number of lookups answered from the cache.
+     * @return Hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that computed a value.
+     * @return Miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of lookups that waited for another thread's computation.
+     * @return Coalesced lookup count
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Get the number of entries dropped to make room, including new entries the
+     * TINY_LFU policy declined to admit.
+     * @return Eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the share of lookups that did not compute a value (hits and coalesced waits).
+     * @return Hit rate between 0 and 1, 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long saved = hits.sum() + coalesced.sum();
+        long total = saved + misses.sum();
+        return total == 0 ? 0 : (double) saved / total;
+    }
+
+    /**
+     * Drop every entry and reset the statistics.
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+        hits.reset();
+        misses.reset();
+        coalesced.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Format the statistics on one line.
+     * @return Statistics string
+     */
+    @Override
+    public String toString() {
+        return String.format("size=%d/%d policy=%s hits=%d misses=%d coalesced=%d evictions=%d hit-rate=%.1f%%",
+                size(), capacity, policy, getHitCount(), getMissCount(), getCoalescedCount(), getEvictionCount(),
+                getHitRate() * 100);
+    }
+
+    /**
+     * Pick the segment for a key.
+     * @param key Key to locate
+     * @return Segment holding the key
+     */
+    private Segment<K, V> segmentFor(K key) {
+        // Use the high bits so segment choice is independent of the sketch and map hashing
+        int hash = key.hashCode() * 0x9E3779B9;
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    /**
+     * Share of the cache guarded by one lock.
+     * Under LRU only the main map is used; under TINY_LFU new entries enter the window
+     * and compete with the main map's eldest entry for admission when they leave it.
+     */
+    private static final class Segment<K, V> {
+        private final LinkedHashMap<K, V> window;
+        private final LinkedHashMap<K, V> main;
+        private final int windowCapacity;
+        private final int mainCapacity;
+        private final FrequencySketch sketch;
+
+        Segment(int capacity, EvictionPolicy policy) {
+            // Access order makes iteration start at the least recently used entry
+            this.window = new LinkedHashMap<>(16, 0.75f, true);
+            this.main = new LinkedHashMap<>(16, 0.75f, true);
+            if (policy == EvictionPolicy.TINY_LFU && capacity > 1) {
+                this.windowCapacity = Math.max(1, capacity * WINDOW_PERCENT / 100);
+                this.sketch = new FrequencySketch(capacity);
+            } else {
+                this.windowCapacity = 0;
+                this.sketch = null;
+            }
+            this.mainCapacity = capacity - windowCapacity;
+        }
+
+        synchronized V get(K key) {
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+            V value = main.get(key);
+            return value != null ? value : window.get(key);
+        }
+
+        /**
+         * Insert a computed value, evicting as the policy requires.
+         * @return Number of entries dropped
+         */
+        synchronized int put(K key, V value) {
+            if (sketch == null) {
+                main.put(key, value);
+                return main.size() > mainCapacity ? evictEldest(main) : 0;
+            }
+            window.put(key, value);
+            if (window.size() <= windowCapacity) {
+                return 0;
+            }
+            // The window's eldest entry moves on to compete for a place in the main area
+            Iterator<Map.Entry<K, V>> candidates = window.entrySet().iterator();
+            Map.Entry<K, V> candidate = candidates.next();
+            candidates.remove();
+            if (main.size() < mainCapacity) {
+                main.put(candidate.getKey(), candidate.getValue());
+                return 0;
+            }
+            K victim = main.keySet().iterator().next();
+            if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+                main.remove(victim);
+                main.put(candidate.getKey(), candidate.getValue());
+            }
+            return 1;
+        }
+
+        synchronized int size() {
+            return window.size() + main.size();
+        }
+
+        synchronized void clear() {
+            window.clear();
+            main.clear();
+            if (sketch != null) {
+                sketch.clear();
+            }
+        }
+
+        /**
+         * Remove the least recently used entry of a map.
+         * @return Number of entries removed
+         */
+        private static <K, V> int evictEldest(LinkedHashMap<K, V> map) {
+            Iterator<K> eldest = map.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            return 1;
+        }
+    }
+
+    /**
+     * Count-min sketch of recent key frequencies with small saturating counters.
+     * All counters are halved after a sample period, so old popularity fades.
+     * Not thread-safe; each segment uses its own under the segment lock.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        // Halve the counters after this many increments per cached entry
+        private static final int SAMPLE_FACTOR = 10;
+
+        private final byte[] counters;
+        private final int mask;
+        private final long samplePeriod;
+        private long additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, Math.min(1 << 28, capacity) * 2 - 1)) << 1;
+            this.counters = new byte[width];
+            this.mask = width - 1;
+            this.samplePeriod = (long) capacity * SAMPLE_FACTOR;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(hash, i);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= samplePeriod) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int min = MAX_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                min = Math.min(min, counters[indexOf(hash, i)]);
+            }
+            return min;
+        }
+
+        void clear() {
+            Arrays.fill(counters, (byte) 0);
+            additions = 0;
+        }
+
+        private int indexOf(int hash, int row) {
+            // Derive an independent-enough index per row from one spread hash
+            int h = (hash + row * 0x9E3779B9) * 0x85EBCA6B;
+            return (h ^ (h >>> 15)) & mask;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 16;
+            hash *= 0x45D9F3B;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Point-in-time copy of the processing metrics.
+ * Snapshots are immutable, so they can be handed to reporters on other threads
+ * and compared with earlier snapshots to get per-interval rates.
+ */
+public class MetricsSnapshot {
+    private final long elapsedNanos;
+    private final long completedTasks;
+    private final int queueDepth;
+    private final LatencyHistogram.Summary waitTime;
+    private final LatencyHistogram.Summary processingTime;
+    private final LatencyHistogram.Summary endToEnd;
+    private final Map<Integer, Long> completedByWorker;
+
+    /**
+     * Constructor for a snapshot.
+     * @param elapsedNanos Time since the metrics were last reset
+     * @param completedTasks Tasks completed since the last reset
+     * @param queueDepth Tasks waiting in the watched queue, or -1 if none is watched
+     * @param waitTime Enqueue-to-dequeue wait time summary
+     * @param processingTime Processing time summary
+     * @param endToEnd Enqueue-to-result latency summary
+     * @param completedByWorker Completed tasks per worker ID
+     */
+    MetricsSnapshot(long elapsedNanos, long completedTasks, int queueDepth,
+                    LatencyHistogram.Summary waitTime, LatencyHistogram.Summary processingTime,
+                    LatencyHistogram.Summary endToEnd, Map<Integer, Long> completedByWorker) {
+        this.elapsedNanos = elapsedNanos;
+        this.completedTasks = completedTasks;
+        this.queueDepth = queueDepth;
+        this.waitTime = waitTime;
+        this.processingTime = processingTime;
+        this.endToEnd = endToEnd;
+        this.completedByWorker = Collections.unmodifiableMap(new TreeMap<>(completedByWorker));
+    }
+
+    /**
+     * Get the time covered by the snapshot.
+     * @return Nanoseconds since the metrics were last reset
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the number of completed tasks.
+     * @return Completed task count
+     */
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    /**
+     * Get the average completion rate over the snapshot.
+     * @return Tasks per second
+     */
+    public double getThroughputPerSecond() {
+        return elapsedNanos <= 0 ? 0 : completedTasks * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Get the completion rate since an earlier snapshot.
+     * @param previous Earlier snapshot from the same metrics, or null for the whole run
+     * @return Tasks per second between the two snapshots
+     */
+    public double getThroughputPerSecondSince(MetricsSnapshot previous) {
+        if (previous == null) {
+            return getThroughputPerSecond();
+        }
+        long nanos = elapsedNanos - previous.elapsedNanos;
+        return nanos <= 0 ? 0 : (completedTasks - previous.completedTasks) * 1e9 / nanos;
+    }
+
+    /**
+     * Get the queue depth when the snapshot was taken.
+     * @return Queued tasks, or -1 if no queue is watched
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Get the enqueue-to-dequeue wait time summary.
+     * @return Wait time summary
+     */
+    public LatencyHistogram.Summary getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * Get the processing time summary.
+     * @return Processing time summary
+     */
+    public LatencyHistogram.Summary getProcessingTime() {
+        return processingTime;
+    }
+
+    /**
+     * Get the enqueue-to-result latency summary.
+     * @return End-to-end latency summary
+     */
+    public LatencyHistogram.Summary getEndToEnd() {
+        return endToEnd;
+    }
+
+    /**
+     * Get the number of tasks each worker completed.
+     * @return Unmodifiable map from worker ID to completed count, ordered by ID
+     */
+    public Map<Integer, Long> getCompletedByWorker() {
+        return completedByWorker;
+    }
+
+    /**
+     * Format the snapshot on one line.
+     * @return Snapshot string
+     */
+    @Override
+    public String toString() {
+        return String.format("completed=%d throughput=%.1f/s queue=%d workers=%s | wait %s | processing %s | end-to-end %s",
+                completedTasks, getThroughputPerSecond(), queueDepth, completedByWorker,
+                waitTime, processingTime, endToEnd);
+    }
+}
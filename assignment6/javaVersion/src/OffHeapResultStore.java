@@ -0,0 +1,350 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Result store for very large runs that keeps results out of the object heap.
+ * Task ID, worker ID and timestamp are packed into primitive column arrays, and the
+ * processed data is copied into direct (off-heap) ByteBuffer arenas, so a stored result
+ * costs a few array slots and its payload bytes instead of two objects with headers.
+ * Results are read back through a Cursor or aggregate queries without creating Result
+ * objects. Like ResultsCollector, writes go to a stripe chosen by the calling thread.
+ * Use it as the downstream of a ResultsCollector to keep every result of a run.
+ */
+public class OffHeapResultStore implements Consumer<Result> {
+    public static final int DEFAULT_ARENA_BYTES = 4 * 1024 * 1024;
+
+    // Rows per column chunk; columns grow by whole chunks, never by copying rows
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_ROWS = 1 << CHUNK_BITS;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int arenaBytes;
+
+    /**
+     * Constructor with the default arena size.
+     */
+    public OffHeapResultStore() {
+        this(DEFAULT_ARENA_BYTES);
+    }
+
+    /**
+     * Constructor for a store.
+     * @param arenaBytes Size of each off-heap payload arena
+     * @throws IllegalArgumentException if arenaBytes is not positive
+     */
+    public OffHeapResultStore(int arenaBytes) {
+        if (arenaBytes <= 0) {
+            throw new IllegalArgumentException("Arena size must be positive: " + arenaBytes);
+        }
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = stripeCount - 1;
+        this.arenaBytes = arenaBytes;
+    }
+
+    /**
+     * Store a result, for use as a ResultsCollector downstream.
+     * @param result Result to store
+     */
+    @Override
+    public void accept(Result result) {
+        add(result.getTaskId(), result.getWorkerId(), result.getTimestamp(), result.getProcessedData());
+    }
+
+    /**
+     * Store a result from its fields.
+     * @param taskId Task ID
+     * @param workerId Worker ID
+     * @param timestamp Result timestamp
+     * @param data Processed data, may be null
+     */
+    public void add(int taskId, int workerId, long timestamp, String data) {
+        currentStripe().add(taskId, workerId, timestamp, data, arenaBytes);
+    }
+
+    /**
+     * Get the number of stored results.
+     * @return Result count
+     */
+    public long size() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.size;
+        }
+        return total;
+    }
+
+    /**
+     * Get the off-heap memory held by the payload arenas.
+     * @return Allocated arena bytes
+     */
+    public long getOffHeapBytes() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.arenaBytesAllocated;
+        }
+        return total;
+    }
+
+    /**
+     * Open a cursor over the results stored so far.
+     * Results added after the cursor is opened are not visited.
+     * @return Cursor positioned before the first result
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Count results per worker by scanning the worker column only.
+     * @return Map from worker ID to result count
+     */
+    public Map<Integer, Long> countByWorker() {
+        Map<Integer, Long> counts = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            long rows = stripe.size;
+            Chunk[] chunks = stripe.chunks;
+            for (long row = 0; row < rows; row++) {
+                counts.merge(chunks[(int) (row >>> CHUNK_BITS)].workerIds[(int) (row & (CHUNK_ROWS - 1))], 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Get the earliest and latest result timestamps by scanning the timestamp column only.
+     * @return Two-element array {min, max}, or {0, 0} if the store is empty
+     */
+    public long[] timestampRange() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (Stripe stripe : stripes) {
+            long rows = stripe.size;
+            Chunk[] chunks = stripe.chunks;
+            for (long row = 0; row < rows; row++) {
+                long timestamp = chunks[(int) (row >>> CHUNK_BITS)].timestamps[(int) (row & (CHUNK_ROWS - 1))];
+                min = Math.min(min, timestamp);
+                max = Math.max(max, timestamp);
+            }
+        }
+        return min > max ? new long[] {0, 0} : new long[] {min, max};
+    }
+
+    /**
+     * Drop every stored result. Off-heap arenas are released once they are garbage collected.
+     * Should not be called while results are still being added.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * Pick the stripe owned by the calling thread.
+     * @return Stripe for the current thread
+     */
+    private Stripe currentStripe() {
+        long id = Thread.currentThread().getId();
+        // Spread sequential thread ids across the stripes
+        int hash = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+        return stripes[hash & stripeMask];
+    }
+
+    /**
+     * Forward-only view over the stored results, one row at a time.
+     * Field accessors read the current row's columns; the data is decoded only on request.
+     * A cursor is not thread-safe.
+     */
+    public class Cursor {
+        private final long[] rowLimits;
+        private final BinaryStrings.Scratch scratch;
+        private int stripeIndex;
+        private long row;
+        private Chunk chunk;
+        private int slot;
+
+        /**
+         * Constructor captures the number of rows in each stripe.
+         */
+        private Cursor() {
+            this.rowLimits = new long[stripes.length];
+            for (int i = 0; i < stripes.length; i++) {
+                rowLimits[i] = stripes[i].size;
+            }
+            this.scratch = new BinaryStrings.Scratch();
+            this.row = -1;
+        }
+
+        /**
+         * Move to the next result.
+         * @return true if there is a result, false at the end
+         */
+        public boolean next() {
+            row++;
+            while (stripeIndex < stripes.length && row >= rowLimits[stripeIndex]) {
+                stripeIndex++;
+                row = 0;
+            }
+            if (stripeIndex == stripes.length) {
+                chunk = null;
+                return false;
+            }
+            chunk = stripes[stripeIndex].chunks[(int) (row >>> CHUNK_BITS)];
+            slot = (int) (row & (CHUNK_ROWS - 1));
+            return true;
+        }
+
+        /**
+         * Get the current result's task ID.
+         * @return Task ID
+         */
+        public int taskId() {
+            return current().taskIds[slot];
+        }
+
+        /**
+         * Get the current result's worker ID.
+         * @return Worker ID
+         */
+        public int workerId() {
+            return current().workerIds[slot];
+        }
+
+        /**
+         * Get the current result's timestamp.
+         * @return Timestamp
+         */
+        public long timestamp() {
+            return current().timestamps[slot];
+        }
+
+        /**
+         * Get a read-only view of the current result's UTF-8 data, without copying it.
+         * @return Data bytes, or null if the result had no data
+         */
+        public ByteBuffer data() {
+            ByteBuffer view = payload();
+            int length = view.getInt();
+            if (length < 0) {
+                return null;
+            }
+            view.limit(view.position() + length);
+            return view.slice().asReadOnlyBuffer();
+        }
+
+        /**
+         * Decode the current result's data.
+         * @return Data string, or null if the result had no data
+         */
+        public String dataAsString() {
+            return BinaryStrings.get(payload(), scratch);
+        }
+
+        /**
+         * Materialize the current row as a Result, e.g. to hand it to code that needs one.
+         * @return New Result with the row's fields
+         */
+        public Result toResult() {
+            return new Result(taskId(), dataAsString(), workerId(), timestamp());
+        }
+
+        /**
+         * Get the chunk of the current row.
+         * @return Current chunk
+         * @throws IllegalStateException if the cursor is not on a row
+         */
+        private Chunk current() {
+            if (chunk == null) {
+                throw new IllegalStateException("Cursor is not positioned on a result.");
+            }
+            return chunk;
+        }
+
+        /**
+         * Get a buffer positioned at the current row's length-prefixed payload.
+         * @return Independent view of the payload's arena
+         */
+        private ByteBuffer payload() {
+            long ref = current().dataRefs[slot];
+            ByteBuffer view = stripes[stripeIndex].arenas[(int) (ref >>> 32)].duplicate();
+            view.position((int) ref);
+            return view;
+        }
+    }
+
+    /**
+     * Fixed-size block of column storage.
+     */
+    private static final class Chunk {
+        final int[] taskIds = new int[CHUNK_ROWS];
+        final int[] workerIds = new int[CHUNK_ROWS];
+        final long[] timestamps = new long[CHUNK_ROWS];
+        // Arena index in the high 32 bits, offset of the length-prefixed payload in the low 32
+        final long[] dataRefs = new long[CHUNK_ROWS];
+    }
+
+    /**
+     * Columns and arenas written by one group of threads under its own lock.
+     * Readers go through the volatile size, so they never need the lock.
+     */
+    private static final class Stripe {
+        private volatile Chunk[] chunks = new Chunk[0];
+        private volatile ByteBuffer[] arenas = new ByteBuffer[0];
+        private volatile long size;
+        private volatile long arenaBytesAllocated;
+
+        synchronized void add(int taskId, int workerId, long timestamp, String data, int arenaBytes) {
+            long row = size;
+            int chunkIndex = (int) (row >>> CHUNK_BITS);
+            Chunk[] currentChunks = chunks;
+            if (chunkIndex == currentChunks.length) {
+                currentChunks = Arrays.copyOf(currentChunks, chunkIndex + 1);
+                currentChunks[chunkIndex] = new Chunk();
+                chunks = currentChunks;
+            }
+            Chunk chunk = currentChunks[chunkIndex];
+            int slot = (int) (row & (CHUNK_ROWS - 1));
+            chunk.taskIds[slot] = taskId;
+            chunk.workerIds[slot] = workerId;
+            chunk.timestamps[slot] = timestamp;
+            chunk.dataRefs[slot] = appendPayload(data, arenaBytes);
+            // Publishing the new size makes the row visible to readers
+            size = row + 1;
+        }
+
+        /**
+         * Copy a payload into the current arena, starting a new one when it is full.
+         * @return Reference to the payload
+         */
+        private long appendPayload(String data, int arenaBytes) {
+            int needed = BinaryStrings.encodedSize(data);
+            ByteBuffer[] currentArenas = arenas;
+            ByteBuffer arena = currentArenas.length == 0 ? null : currentArenas[currentArenas.length - 1];
+            if (arena == null || arena.remaining() < needed) {
+                arena = ByteBuffer.allocateDirect(Math.max(arenaBytes, needed));
+                currentArenas = Arrays.copyOf(currentArenas, currentArenas.length + 1);
+                currentArenas[currentArenas.length - 1] = arena;
+                arenas = currentArenas;
+                arenaBytesAllocated += arena.capacity();
+            }
+            long ref = ((long) (currentArenas.length - 1) << 32) | arena.position();
+            BinaryStrings.put(arena, data);
+            return ref;
+        }
+
+        synchronized void clear() {
+            chunks = new Chunk[0];
+            arenas = new ByteBuffer[0];
+            arenaBytesAllocated = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Multi-stage processing pipeline with per-stage parallelism.
+ * Stages are connected by bounded queues, so a slow stage applies backpressure upstream
+ * instead of letting work pile up, and can be scaled on its own by giving it more workers.
+ * A pipeline is built once, started, fed with submit(), then closed; closing lets each
+ * stage drain its queue before shutting down the next one.
+ * @param <I> Type of items submitted to the first stage
+ * @param <O> Type of items handed to the sink by the last stage
+ */
+public class Pipeline<I, O> {
+    // End-of-stream marker passed from each stage to the next once all its workers finish
+    private static final Object END = new Object();
+
+    private final List<PipelineStage<?, ?>> stages;
+    private final List<Thread> threads;
+    private volatile boolean started;
+    private volatile boolean closed;
+    private long startNanos;
+
+    /**
+     * Constructor for an empty pipeline.
+     */
+    private Pipeline() {
+        this.stages = new ArrayList<>();
+        this.threads = new ArrayList<>();
+    }
+
+    /**
+     * Begin building a pipeline.
+     * @param <T> Type of items submitted to the pipeline
+     * @return Pipeline with no stages
+     */
+    public static <T> Pipeline<T, T> create() {
+        return new Pipeline<>();
+    }
+
+    /**
+     * Append a stage to the pipeline.
+     * @param name Stage name used in logs and statistics
+     * @param workers Number of worker threads for the stage
+     * @param queueCapacity Capacity of the stage's input queue
+     * @param processor Work done on each item
+     * @param <N> Type of items the new stage produces
+     * @return This pipeline, typed by the new stage's output
+     * @throws IllegalStateException if the pipeline has already been started
+     */
+    @SuppressWarnings("unchecked")
+    public <N> Pipeline<I, N> then(String name, int workers, int queueCapacity,
+                                   PipelineStage.Processor<? super O, ? extends N> processor) {
+        if (started) {
+            throw new IllegalStateException("Cannot add stages to a running pipeline.");
+        }
+        stages.add(new PipelineStage<O, N>(name, workers, queueCapacity, processor));
+        return (Pipeline<I, N>) this;
+    }
+
+    /**
+     * Start every stage's worker threads.
+     * @param sink Receives the output of the last stage, called from that stage's workers
+     * @throws IllegalStateException if the pipeline has no stages or was already started
+     */
+    public synchronized void start(Consumer<? super O> sink) {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("Pipeline has no stages.");
+        }
+        if (started) {
+            throw new IllegalStateException("Pipeline has already been started.");
+        }
+        started = true;
+        startNanos = System.nanoTime();
+        for (int s = 0; s < stages.size(); s++) {
+            PipelineStage<?, ?> stage = stages.get(s);
+            BlockingQueue<Object> next = s + 1 < stages.size() ? stages.get(s + 1).getInputQueue() : null;
+            AtomicInteger running = new AtomicInteger(stage.getWorkers());
+            for (int w = 1; w <= stage.getWorkers(); w++) {
+                int workerId = w;
+                Thread thread = new Thread(() -> runWorker(stage, workerId, next, sink, running),
+                        "pipeline-" + stage.getName() + "-" + workerId);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+        AsyncLogger.info("[Pipeline] Started {} stages with {} threads.", stages.size(), threads.size());
+    }
+
+    /**
+     * Submit an item to the first stage, blocking while its queue is full.
+     * @param item Item to process
+     * @throws InterruptedException if interrupted while waiting for space
+     * @throws IllegalStateException if the pipeline is not running
+     * @throws NullPointerException if item is null
+     */
+    public void submit(I item) throws InterruptedException {
+        if (!started || closed) {
+            throw new IllegalStateException("Pipeline is not accepting items.");
+        }
+        if (item == null) {
+            throw new NullPointerException("Cannot submit null item to pipeline.");
+        }
+        stages.get(0).getInputQueue().put(item);
+    }
+
+    /**
+     * Signal that no more items will be submitted.
+     * Stages finish the work already queued and then shut down in order.
+     * @throws InterruptedException if interrupted while waiting for space in the first queue
+     */
+    public synchronized void close() throws InterruptedException {
+        if (!started || closed) {
+            return;
+        }
+        closed = true;
+        stages.get(0).getInputQueue().put(END);
+    }
+
+    /**
+     * Wait for every stage to finish after close().
+     * @param timeout Maximum time to wait
+     * @param unit Unit of the timeout
+     * @return true if all stages finished, false on timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread thread : threads) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return allFinished();
+            }
+            TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+        }
+        return allFinished();
+    }
+
+    /**
+     * Get the stages in order, for reading their statistics.
+     * @return Unmodifiable list of stages
+     */
+    public List<PipelineStage<?, ?>> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * Log one line of throughput and queue depth for each stage.
+     */
+    public void logStats() {
+        double elapsedSeconds = Math.max(1, System.nanoTime() - startNanos) / 1e9;
+        for (PipelineStage<?, ?> stage : stages) {
+            AsyncLogger.info(String.format("[Pipeline] %-10s workers=%d processed=%d failed=%d queue=%d/%d throughput=%.1f/s",
+                    stage.getName(), stage.getWorkers(), stage.getProcessedCount(), stage.getFailedCount(),
+                    stage.getQueueDepth(), stage.getQueueCapacity(), stage.getProcessedCount() / elapsedSeconds));
+        }
+    }
+
+    /**
+     * Worker loop for one stage: take items until the end marker, pass outputs downstream.
+     * The last worker of a stage to finish, normally or by interruption, forwards the end
+     * marker to the next stage.
+     */
+    @SuppressWarnings("unchecked")
+    private void runWorker(PipelineStage<?, ?> stage, int workerId, BlockingQueue<Object> next,
+                           Consumer<? super O> sink, AtomicInteger running) {
+        PipelineStage<Object, Object> typed = (PipelineStage<Object, Object>) stage;
+        BlockingQueue<Object> input = stage.getInputQueue();
+        try {
+            while (true) {
+                Object item = input.take();
+                if (item == END) {
+                    // Leave the marker for the other workers of this stage
+                    input.put(END);
+                    break;
+                }
+                Object output = typed.apply(item, workerId);
+                if (output == null) {
+                    continue;
+                }
+                if (next != null) {
+                    next.put(output);
+                } else {
+                    try {
+                        sink.accept((O) output);
+                    } catch (RuntimeException e) {
+                        AsyncLogger.error("[Pipeline " + stage.getName() + " " + workerId + "] Sink rejected item: " + e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            AsyncLogger.warn("[Pipeline " + stage.getName() + " " + workerId + "] Interrupted: " + e.getMessage());
+        } finally {
+            // Also on interruption, so the next stage is never left waiting for the marker
+            if (running.decrementAndGet() == 0) {
+                input.clear();
+                if (next != null) {
+                    forwardEnd(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Put the end marker into the next stage's queue, waiting for space even if the
+     * calling worker was interrupted; the interrupt status is kept.
+     * @param next Input queue of the next stage
+     */
+    private static void forwardEnd(BlockingQueue<Object> next) {
+        boolean interrupted = Thread.interrupted();
+        while (true) {
+            try {
+                next.put(END);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Check whether every stage thread has exited.
+     * @return true if no stage thread is alive
+     */
+    private boolean allFinished() {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,152 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One stage of a Pipeline: a bounded input queue drained by its own set of worker threads.
+ * Each stage is scaled independently through its worker count, and exposes its
+ * throughput counters and queue depth while the pipeline is running.
+ * @param <I> Type of items the stage consumes
+ * @param <O> Type of items the stage produces
+ */
+public class PipelineStage<I, O> {
+
+    /**
+     * Work done by a stage on a single item.
+     * @param <I> Input type
+     * @param <O> Output type
+     */
+    @FunctionalInterface
+    public interface Processor<I, O> {
+        /**
+         * Transform one item.
+         * @param input Item taken from the stage's input queue
+         * @param workerId ID of the stage worker running the call, starting at 1
+         * @return Output passed to the next stage, or null to drop the item
+         * @throws Exception if the item cannot be processed; it is counted as failed and dropped
+         */
+        O process(I input, int workerId) throws Exception;
+    }
+
+    private final String name;
+    private final int workers;
+    private final Processor<? super I, ? extends O> processor;
+    private final BlockingQueue<Object> inputQueue;
+    private final int queueCapacity;
+    private final LongAdder processedCount;
+    private final LongAdder failedCount;
+    private final LongAdder busyNanos;
+
+    /**
+     * Constructor for a stage.
+     * @param name Stage name used in logs and statistics
+     * @param workers Number of worker threads for this stage
+     * @param queueCapacity Capacity of the stage's input queue
+     * @param processor Work done on each item
+     * @throws IllegalArgumentException if workers or queueCapacity is not positive, or processor is null
+     */
+    public PipelineStage(String name, int workers, int queueCapacity, Processor<? super I, ? extends O> processor) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Stage " + name + " needs at least one worker: " + workers);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Stage " + name + " needs a positive queue capacity: " + queueCapacity);
+        }
+        if (processor == null) {
+            throw new IllegalArgumentException("Stage " + name + " processor cannot be null.");
+        }
+        this.name = name;
+        this.workers = workers;
+        this.processor = processor;
+        this.inputQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.processedCount = new LongAdder();
+        this.failedCount = new LongAdder();
+        this.busyNanos = new LongAdder();
+    }
+
+    /**
+     * Run the processor on one item and record its timing.
+     * @param input Item to process
+     * @param workerId ID of the stage worker
+     * @return Output of the processor, or null if it was dropped or failed
+     */
+    O apply(I input, int workerId) {
+        long start = System.nanoTime();
+        try {
+            O output = processor.process(input, workerId);
+            processedCount.increment();
+            return output;
+        } catch (Exception e) {
+            failedCount.increment();
+            AsyncLogger.error("[Pipeline " + name + " " + workerId + "] Error processing item: " + e.getMessage(), e);
+            return null;
+        } finally {
+            busyNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Get the stage's input queue.
+     * @return Input queue, shared with the upstream stage
+     */
+    BlockingQueue<Object> getInputQueue() {
+        return inputQueue;
+    }
+
+    /**
+     * Get the stage name.
+     * @return Stage name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of worker threads.
+     * @return Worker count
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Get the number of items waiting in the input queue.
+     * @return Queue depth
+     */
+    public int getQueueDepth() {
+        return inputQueue.size();
+    }
+
+    /**
+     * Get the capacity of the input queue.
+     * @return Queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Get the number of items processed successfully.
+     * @return Processed count
+     */
+    public long getProcessedCount() {
+        return processedCount.sum();
+    }
+
+    /**
+     * Get the number of items whose processing threw an exception.
+     * @return Failed count
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Get the total time the stage's workers spent inside the processor.
+     * @return Busy time in nanoseconds, summed over all workers
+     */
+    public long getBusyNanos() {
+        return busyNanos.sum();
+    }
+}
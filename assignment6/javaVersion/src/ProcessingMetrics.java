@@ -0,0 +1,250 @@
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live instrumentation for the worker hot path.
+ * Workers record how long each task waited in the queue, how long it took to process,
+ * and its total time from enqueue to stored result; completions are counted per worker.
+ * Recording only touches lock-free counters, so it stays on in normal runs.
+ * The numbers are available as snapshots (on demand or on a fixed period) and through
+ * a JMX MBean. One shared instance is used by every engine, like AsyncLogger.
+ */
+public class ProcessingMetrics implements ProcessingMetricsMBean {
+    // Name the shared instance is registered under in the platform MBean server
+    private static final String OBJECT_NAME = "DataProcessingSystem:type=ProcessingMetrics";
+    private static final ProcessingMetrics GLOBAL = createGlobal();
+
+    private final LatencyHistogram waitTime;
+    private final LatencyHistogram processingTime;
+    private final LatencyHistogram endToEnd;
+    private final LongAdder completedTasks;
+    private final ConcurrentHashMap<Integer, LongAdder> completedByWorker;
+    private volatile SharedTaskQueue watchedQueue;
+    private volatile long startNanos;
+    private ScheduledExecutorService reporter;
+    private ScheduledFuture<?> reportTask;
+
+    /**
+     * Constructor for an independent set of metrics.
+     */
+    public ProcessingMetrics() {
+        this.waitTime = new LatencyHistogram();
+        this.processingTime = new LatencyHistogram();
+        this.endToEnd = new LatencyHistogram();
+        this.completedTasks = new LongAdder();
+        this.completedByWorker = new ConcurrentHashMap<>();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Get the shared instance that workers record into.
+     * @return Shared metrics
+     */
+    public static ProcessingMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Record that a worker picked up a task.
+     * Tasks that never went through a SharedTaskQueue have no enqueue time and are skipped.
+     * @param task Task being started
+     * @param startNanos System.nanoTime() when processing started
+     */
+    public void recordStart(Task task, long startNanos) {
+        if (task.getEnqueueTimeNanos() != 0) {
+            waitTime.record(startNanos - task.getEnqueueTimeNanos());
+        }
+    }
+
+    /**
+     * Record the time spent processing a task.
+     * @param nanos Processing time in nanoseconds
+     */
+    public void recordProcessing(long nanos) {
+        processingTime.record(nanos);
+    }
+
+    /**
+     * Record that a task's result was stored.
+     * @param task Completed task
+     * @param workerId Worker that completed it
+     * @param completedNanos System.nanoTime() when the result was stored
+     */
+    public void recordCompletion(Task task, int workerId, long completedNanos) {
+        if (task.getEnqueueTimeNanos() != 0) {
+            endToEnd.record(completedNanos - task.getEnqueueTimeNanos());
+        }
+        completedTasks.increment();
+        LongAdder count = completedByWorker.get(workerId);
+        if (count == null) {
+            count = completedByWorker.computeIfAbsent(workerId, id -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Report the depth of the given queue in snapshots.
+     * @param queue Queue to watch, or null to stop watching
+     */
+    public void watchQueue(SharedTaskQueue queue) {
+        this.watchedQueue = queue;
+    }
+
+    /**
+     * Take a snapshot of all metrics.
+     * @return Current snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Integer, Long> perWorker = new HashMap<>();
+        completedByWorker.forEach((workerId, count) -> perWorker.put(workerId, count.sum()));
+        return new MetricsSnapshot(System.nanoTime() - startNanos, completedTasks.sum(), getQueueDepth(),
+                waitTime.summarize(), processingTime.summarize(), endToEnd.summarize(), perWorker);
+    }
+
+    /**
+     * Deliver a snapshot to the listener on a fixed period, from a background daemon thread.
+     * Replaces any reporting started earlier.
+     * @param period Time between snapshots
+     * @param unit Unit of the period
+     * @param listener Receives each snapshot
+     * @throws IllegalArgumentException if period is not positive
+     */
+    public synchronized void startReporting(long period, TimeUnit unit, Consumer<? super MetricsSnapshot> listener) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Reporting period must be positive: " + period);
+        }
+        stopReporting();
+        if (reporter == null) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        reportTask = reporter.scheduleAtFixedRate(() -> {
+            try {
+                listener.accept(snapshot());
+            } catch (RuntimeException e) {
+                AsyncLogger.error("[Metrics] Snapshot listener failed: " + e.getMessage(), e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stop periodic reporting, if it was started.
+     */
+    public synchronized void stopReporting() {
+        if (reportTask != null) {
+            reportTask.cancel(false);
+            reportTask = null;
+        }
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    @Override
+    public double getThroughputPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : completedTasks.sum() * 1e9 / elapsed;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        SharedTaskQueue queue = watchedQueue;
+        return queue == null ? -1 : queue.size();
+    }
+
+    @Override
+    public double getWaitP50Millis() {
+        return toMillis(waitTime.summarize().getP50Nanos());
+    }
+
+    @Override
+    public double getWaitP99Millis() {
+        return toMillis(waitTime.summarize().getP99Nanos());
+    }
+
+    @Override
+    public double getProcessingP50Millis() {
+        return toMillis(processingTime.summarize().getP50Nanos());
+    }
+
+    @Override
+    public double getProcessingP99Millis() {
+        return toMillis(processingTime.summarize().getP99Nanos());
+    }
+
+    @Override
+    public double getEndToEndP50Millis() {
+        return toMillis(endToEnd.summarize().getP50Nanos());
+    }
+
+    @Override
+    public double getEndToEndP99Millis() {
+        return toMillis(endToEnd.summarize().getP99Nanos());
+    }
+
+    @Override
+    public double getEndToEndMaxMillis() {
+        return toMillis(endToEnd.summarize().getMaxNanos());
+    }
+
+    @Override
+    public String getCompletedByWorker() {
+        return snapshot().getCompletedByWorker().toString();
+    }
+
+    /**
+     * Discard all recorded samples and counters and restart the throughput clock,
+     * e.g. between runs of different engines. Not atomic with respect to workers
+     * recording at the same time.
+     */
+    @Override
+    public void reset() {
+        waitTime.reset();
+        processingTime.reset();
+        endToEnd.reset();
+        completedTasks.reset();
+        completedByWorker.clear();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Convert nanoseconds to fractional milliseconds.
+     * @param nanos Duration in nanoseconds
+     * @return Duration in milliseconds
+     */
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Create the shared instance and register it with the platform MBean server.
+     * Registration failures are logged and otherwise ignored; recording still works.
+     * @return Shared metrics
+     */
+    private static ProcessingMetrics createGlobal() {
+        ProcessingMetrics metrics = new ProcessingMetrics();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            AsyncLogger.warn("[Metrics] Could not register JMX MBean: " + e.getMessage());
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * JMX management interface for ProcessingMetrics.
+ * Registered as "DataProcessingSystem:type=ProcessingMetrics" so the live numbers can be
+ * read from JConsole or any other JMX client while the system is running.
+ * Latencies are reported in milliseconds.
+ */
+public interface ProcessingMetricsMBean {
+
+    /**
+     * Get the number of tasks completed since the last reset.
+     * @return Completed task count
+     */
+    long getCompletedTasks();
+
+    /**
+     * Get the average completion rate since the last reset.
+     * @return Tasks per second
+     */
+    double getThroughputPerSecond();
+
+    /**
+     * Get the number of tasks waiting in the watched queue.
+     * @return Queue depth, or -1 if no queue is watched
+     */
+    int getQueueDepth();
+
+    /**
+     * Get the median time tasks spent queued before a worker picked them up.
+     * @return Median wait time in milliseconds
+     */
+    double getWaitP50Millis();
+
+    /**
+     * Get the 99th percentile time tasks spent queued.
+     * @return 99th percentile wait time in milliseconds
+     */
+    double getWaitP99Millis();
+
+    /**
+     * Get the median time spent processing a task.
+     * @return Median processing time in milliseconds
+     */
+    double getProcessingP50Millis();
+
+    /**
+     * Get the 99th percentile time spent processing a task.
+     * @return 99th percentile processing time in milliseconds
+     */
+    double getProcessingP99Millis();
+
+    /**
+     * Get the median time from enqueue to stored result.
+     * @return Median end-to-end latency in milliseconds
+     */
+    double getEndToEndP50Millis();
+
+    /**
+     * Get the 99th percentile time from enqueue to stored result.
+     * @return 99th percentile end-to-end latency in milliseconds
+     */
+    double getEndToEndP99Millis();
+
+    /**
+     * Get the largest time from enqueue to stored result.
+     * @return Maximum end-to-end latency in milliseconds
+     */
+    double getEndToEndMaxMillis();
+
+    /**
+     * Get the number of tasks each worker has completed.
+     * @return Counts formatted as "worker=count" pairs
+     */
+    String getCompletedByWorker();
+
+    /**
+     * Discard all recorded samples and counters.
+     */
+    void reset();
+}
@@ -0,0 +1,147 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * Reads records written by RecordFileWriter through a FileChannel and a large direct
+ * buffer, decoding each record in place without copying it out first.
+ * @param <T> Type of record read
+ */
+public class RecordFileReader<T> implements AutoCloseable {
+    private final FileChannel channel;
+    private final BinaryCodec<T> codec;
+    private final long recordCount;
+    private ByteBuffer buffer;
+    private boolean endOfFile;
+    private long recordsRead;
+
+    /**
+     * Open a record file and check its header.
+     * @param path File to read
+     * @param codec Codec for the records
+     * @throws IOException if the file cannot be read or was written with a different codec or version
+     */
+    public RecordFileReader(Path path, BinaryCodec<T> codec) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.codec = codec;
+        this.buffer = ByteBuffer.allocateDirect(RecordFileWriter.DEFAULT_BUFFER_BYTES);
+        buffer.flip();
+        try {
+            if (!fill(RecordFileWriter.HEADER_BYTES)) {
+                throw new EOFException("File is too short for a header: " + path);
+            }
+            int formatId = buffer.getInt();
+            int version = buffer.getInt();
+            if (formatId != codec.formatId()) {
+                throw new IOException("Unexpected record format " + Integer.toHexString(formatId) + " in " + path);
+            }
+            if (version != RecordFileWriter.VERSION) {
+                throw new IOException("Unsupported record file version " + version + " in " + path);
+            }
+            this.recordCount = buffer.getLong();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of records in the file, as recorded when it was closed.
+     * @return Record count, or -1 if the writer did not close the file
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Read the next record.
+     * @return Next record, or null at the end of the file
+     * @throws IOException if the file cannot be read, ends inside a record or holds a corrupt record
+     */
+    public T next() throws IOException {
+        if (!fill(4)) {
+            return null;
+        }
+        int size = buffer.getInt();
+        if (size < 0) {
+            throw new IOException("Corrupt record length: " + size);
+        }
+        if (!fill(size)) {
+            throw new EOFException("File ends inside a record of " + size + " bytes.");
+        }
+        long record = ++recordsRead;
+        int end = buffer.position() + size;
+        int limit = buffer.limit();
+        // Decode within the record's bounds, so a corrupt record cannot read into the next one
+        buffer.limit(end);
+        T value;
+        try {
+            value = codec.decode(buffer);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt record " + record + ": " + e, e);
+        } finally {
+            buffer.limit(limit);
+        }
+        if (buffer.position() != end) {
+            throw new IOException("Record " + record + " decoded to " + (buffer.position() - end + size) + " bytes, expected " + size);
+        }
+        return value;
+    }
+
+    /**
+     * Read up to max records into a collection.
+     * @param sink Collection the records are appended to
+     * @param max Maximum number of records to read
+     * @return Number of records read, 0 at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    public int readBatch(Collection<? super T> sink, int max) throws IOException {
+        int count = 0;
+        T value;
+        while (count < max && (value = next()) != null) {
+            sink.add(value);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Close the file.
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Make sure the buffer holds at least the given number of unread bytes.
+     * @param bytes Bytes needed
+     * @return true if they are available, false if the file ended first
+     * @throws IOException if the read fails
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        if (buffer.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(bytes);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        // Buffer is now in write mode
+        while (buffer.position() < bytes && !endOfFile) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+}
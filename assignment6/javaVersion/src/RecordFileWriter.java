@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Writes records to a file through a FileChannel, encoding them straight into a large
+ * direct buffer so bulk output is a sequence of big channel writes.
+ * File layout: format ID (int), version (int), record count (long, written on close,
+ * -1 while the file is incomplete), then each record as its length (int) and body.
+ * Also usable as a thread-safe Consumer, e.g. as the downstream of a streaming collector.
+ * @param <T> Type of record written
+ */
+public class RecordFileWriter<T> implements Consumer<T>, AutoCloseable {
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final BinaryCodec<T> codec;
+    private ByteBuffer buffer;
+    private long recordCount;
+    private boolean closed;
+
+    /**
+     * Create or truncate a record file.
+     * @param path File to write
+     * @param codec Codec for the records
+     * @throws IOException if the file cannot be opened
+     */
+    public RecordFileWriter(Path path, BinaryCodec<T> codec) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.codec = codec;
+        this.buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_BYTES);
+        buffer.putInt(codec.formatId()).putInt(VERSION).putLong(-1);
+    }
+
+    /**
+     * Append a record.
+     * @param value Record to write
+     * @throws IOException if the buffer cannot be flushed
+     * @throws IllegalStateException if the writer is closed
+     */
+    public synchronized void write(T value) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed.");
+        }
+        int size = codec.encodedSize(value);
+        if (buffer.remaining() < 4 + size) {
+            flushBuffer();
+            if (buffer.capacity() < 4 + size) {
+                buffer = ByteBuffer.allocateDirect(4 + size);
+            }
+        }
+        buffer.putInt(size);
+        codec.encode(value, buffer);
+        recordCount++;
+    }
+
+    /**
+     * Append a record, for use as a Consumer.
+     * @param value Record to write
+     * @throws UncheckedIOException if the buffer cannot be flushed
+     */
+    @Override
+    public void accept(T value) {
+        try {
+            write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Get the number of records written so far.
+     * @return Record count
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Flush buffered records, record the final count in the header, and close the file.
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushBuffer();
+            ByteBuffer count = ByteBuffer.allocate(8).putLong(0, recordCount);
+            channel.write(count, 8);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write the buffered bytes to the channel and empty the buffer.
+     * @throws IOException if the write fails
+     */
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,39 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Binary codec for Result: task ID (int), worker ID (int), timestamp (long), then the
+ * processed data as a length-prefixed UTF-8 string.
+ * Instances keep a decode scratch array, so use one per thread.
+ */
+public class ResultCodec implements BinaryCodec<Result> {
+    // "RSLT"
+    private static final int FORMAT_ID = 0x52534C54;
+
+    private final BinaryStrings.Scratch scratch = new BinaryStrings.Scratch();
+
+    @Override
+    public int formatId() {
+        return FORMAT_ID;
+    }
+
+    @Override
+    public int encodedSize(Result result) {
+        return 16 + BinaryStrings.encodedSize(result.getProcessedData());
+    }
+
+    @Override
+    public void encode(Result result, ByteBuffer buffer) {
+        buffer.putInt(result.getTaskId());
+        buffer.putInt(result.getWorkerId());
+        buffer.putLong(result.getTimestamp());
+        BinaryStrings.put(buffer, result.getProcessedData());
+    }
+
+    @Override
+    public Result decode(ByteBuffer buffer) {
+        int taskId = buffer.getInt();
+        int workerId = buffer.getInt();
+        long timestamp = buffer.getLong();
+        return new Result(taskId, BinaryStrings.get(buffer, scratch), workerId, timestamp);
+    }
+}
@@ -1,57 +1,496 @@
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * Thread-safe results collector for storing processed task results.
- * Uses synchronized blocks to ensure thread-safe access to the results list.
+ * Results are appended to one of several striped buffers chosen by the calling thread,
+ * so workers rarely share a lock, and the stripes are only merged when results are read.
+ * In streaming mode results are passed straight to a downstream consumer and only counted.
+ * With a journal attached, each stored result acknowledges its task so it is not replayed.
+ * Completed task IDs are tracked in a TaskIdSet: only the first result for a task is
+ * kept, later duplicates (e.g. from a task re-queued after an interruption) are dropped
+ * and counted, and task IDs registered with expectTask() can be reported as missing.
+ * Tasks that passed their deadline are accounted separately: expired in the queue or
+ * timed out while running (no result), or late (a result stored after the deadline).
+ * Tasks a bounded queue rejected or dropped under its overflow policy are accounted
+ * the same way, so they are not reported as missing.
  */
 public class ResultsCollector {
-    private List<Result> results;
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final LongAdder resultCount;
+    private final TaskIdSet completedTasks;
+    private final TaskIdSet expectedTasks;
+    private final LongAdder duplicateCount;
+    private final TaskIdSet abandonedTasks;
+    private final TaskIdSet lateTasks;
+    private final LongAdder expiredCount;
+    private final LongAdder timedOutCount;
+    private final LongAdder deadLetterCount;
+    private final LongAdder rejectedCount;
+    private final LongAdder droppedCount;
+    private final Consumer<? super Result> downstream;
+    private volatile TaskJournal journal;
 
     /**
-     * Constructor initializes the synchronized results list.
+     * Constructor sizes the stripes to the number of available cores.
      */
     public ResultsCollector() {
-        this.results = Collections.synchronizedList(new ArrayList<>());
+        this(null);
     }
 
     /**
-     * Add a result to the collector with synchronization.
+     * Constructor for streaming mode.
+     * Results are handed to the downstream consumer on the worker's thread instead of being
+     * stored, so getResults() stays empty; the consumer must be thread-safe.
+     * @param downstream Consumer that receives each result, or null to store results
+     */
+    public ResultsCollector(Consumer<? super Result> downstream) {
+        // Power of two at least twice the core count keeps collisions between threads rare
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = stripeCount - 1;
+        this.resultCount = new LongAdder();
+        this.completedTasks = new TaskIdSet();
+        this.expectedTasks = new TaskIdSet();
+        this.duplicateCount = new LongAdder();
+        this.abandonedTasks = new TaskIdSet();
+        this.lateTasks = new TaskIdSet();
+        this.expiredCount = new LongAdder();
+        this.timedOutCount = new LongAdder();
+        this.deadLetterCount = new LongAdder();
+        this.rejectedCount = new LongAdder();
+        this.droppedCount = new LongAdder();
+        this.downstream = downstream;
+    }
+
+    /**
+     * Add a result to the collector.
+     * Only the calling thread's stripe is locked.
      * @param result Result to be added
+     * @return true if the result was added, false if its task already had a result
      * @throws NullPointerException if result is null
+     * @throws IllegalArgumentException if the result's task ID is negative
      */
-    public synchronized void addResult(Result result) {
+    public boolean addResult(Result result) {
         if (result == null) {
             throw new NullPointerException("Cannot add null result to collector.");
         }
-        results.add(result);
-        System.out.println("[ResultsCollector] Added result for task " + result.getTaskId() + 
-                          " by worker " + result.getWorkerId() + " (Total results: " + results.size() + ")");
+        if (!completedTasks.add(result.getTaskId())) {
+            rejectDuplicate(result);
+            return false;
+        }
+        if (downstream != null) {
+            downstream.accept(result);
+        } else {
+            currentStripe().add(result);
+        }
+        resultCount.increment();
+        TaskJournal taskJournal = journal;
+        if (taskJournal != null) {
+            taskJournal.acknowledge(result.getTaskId());
+        }
+        if (AsyncLogger.isEnabled(AsyncLogger.Level.DEBUG)) {
+            AsyncLogger.debug("[ResultsCollector] Added result for task {} by worker {} (Total results: {})",
+                    result.getTaskId(), result.getWorkerId(), resultCount.sum());
+        }
+        return true;
+    }
+
+    /**
+     * Acknowledge tasks in a journal as their results are recorded.
+     * @param journal Journal shared with the task queue, or null to stop acknowledging
+     */
+    public void attachJournal(TaskJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Add a batch of results, taking the stripe lock once for the whole batch.
+     * Results whose task already has a result are dropped.
+     * @param results Results to be added
+     * @return Number of results added
+     * @throws NullPointerException if the collection or any result in it is null
+     * @throws IllegalArgumentException if a result's task ID is negative
+     */
+    public int addResults(Collection<Result> results) {
+        if (results == null) {
+            throw new NullPointerException("Cannot add null result batch to collector.");
+        }
+        for (Result result : results) {
+            if (result == null) {
+                throw new NullPointerException("Cannot add null result to collector.");
+            }
+        }
+        boolean[] duplicates = null;
+        int index = 0;
+        for (Result result : results) {
+            if (!completedTasks.add(result.getTaskId())) {
+                if (duplicates == null) {
+                    duplicates = new boolean[results.size()];
+                }
+                duplicates[index] = true;
+                rejectDuplicate(result);
+            }
+            index++;
+        }
+        // Only a batch with duplicates is copied; the common case is stored as given
+        Collection<Result> batch = results;
+        if (duplicates != null) {
+            List<Result> accepted = new ArrayList<>(results.size());
+            index = 0;
+            for (Result result : results) {
+                if (!duplicates[index++]) {
+                    accepted.add(result);
+                }
+            }
+            batch = accepted;
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        if (downstream != null) {
+            for (Result result : batch) {
+                downstream.accept(result);
+            }
+        } else {
+            currentStripe().addAll(batch);
+        }
+        resultCount.add(batch.size());
+        TaskJournal taskJournal = journal;
+        if (taskJournal != null) {
+            for (Result result : batch) {
+                taskJournal.acknowledge(result.getTaskId());
+            }
+        }
+        if (AsyncLogger.isEnabled(AsyncLogger.Level.DEBUG)) {
+            AsyncLogger.debug("[ResultsCollector] Added batch of {} results (Total results: {})",
+                    batch.size(), resultCount.sum());
+        }
+        return batch.size();
+    }
+
+    /**
+     * Register a task ID whose result this collector should receive, so that it can be
+     * reported as missing if no result arrives.
+     * @param taskId ID of a task submitted for processing
+     * @throws IllegalArgumentException if taskId is negative
+     */
+    public void expectTask(int taskId) {
+        expectedTasks.add(taskId);
+    }
+
+    /**
+     * Check whether a result has been added for a task.
+     * @param taskId Task ID to look up
+     * @return true if the task has a result
+     * @throws IllegalArgumentException if taskId is negative
+     */
+    public boolean isCompleted(int taskId) {
+        return completedTasks.contains(taskId);
+    }
+
+    /**
+     * Get the number of task IDs registered with expectTask().
+     * @return Expected task count
+     */
+    public long getExpectedCount() {
+        return expectedTasks.size();
+    }
+
+    /**
+     * Get the number of expected tasks that have no result yet and did not pass their deadline.
+     * @return Missing task count
+     */
+    public long getMissingCount() {
+        return expectedTasks.countExcept(completedTasks, abandonedTasks);
+    }
+
+    /**
+     * Visit, in ascending order, the expected task IDs that have no result yet and did
+     * not pass their deadline.
+     * @param action Action to run for each missing task ID
+     */
+    public void forEachMissingTask(IntConsumer action) {
+        expectedTasks.forEachExcept(action, completedTasks, abandonedTasks);
+    }
+
+    /**
+     * Record a task that was dropped from the queue because its deadline had passed.
+     * @param task Expired task
+     * @throws IllegalArgumentException if the task ID is negative
+     */
+    public void recordExpired(Task task) {
+        if (abandonedTasks.add(task.getTaskId())) {
+            expiredCount.increment();
+        }
     }
 
     /**
-     * Get a copy of all results to avoid external modification.
+     * Record a task that was cancelled because it was still running at its deadline.
+     * @param task Cancelled task
+     * @throws IllegalArgumentException if the task ID is negative
+     */
+    public void recordTimedOut(Task task) {
+        if (abandonedTasks.add(task.getTaskId())) {
+            timedOutCount.increment();
+        }
+        // Cancellation is final, so the task must not come back on replay
+        TaskJournal taskJournal = journal;
+        if (taskJournal != null) {
+            taskJournal.acknowledge(task.getTaskId());
+        }
+    }
+
+    /**
+     * Record a task that was dead-lettered after failing every attempt it was allowed.
+     * The task stays unacknowledged in the journal, so a restart tries it again.
+     * @param task Dead-lettered task
+     * @throws IllegalArgumentException if the task ID is negative
+     */
+    public void recordDeadLettered(Task task) {
+        if (abandonedTasks.add(task.getTaskId())) {
+            deadLetterCount.increment();
+        }
+    }
+
+    /**
+     * Record a task a full bounded queue turned away, so it was never queued.
+     * @param task Rejected task
+     * @throws IllegalArgumentException if the task ID is negative
+     */
+    public void recordRejected(Task task) {
+        if (abandonedTasks.add(task.getTaskId())) {
+            rejectedCount.increment();
+        }
+    }
+
+    /**
+     * Record a queued task evicted to make room for a more urgent one.
+     * The queue acknowledges the task in the journal itself.
+     * @param task Dropped task
+     * @throws IllegalArgumentException if the task ID is negative
+     */
+    public void recordDropped(Task task) {
+        if (abandonedTasks.add(task.getTaskId())) {
+            droppedCount.increment();
+        }
+    }
+
+    /**
+     * Record a task whose result was stored after its deadline.
+     * @param task Late task
+     * @throws IllegalArgumentException if the task ID is negative
+     */
+    public void recordLate(Task task) {
+        lateTasks.add(task.getTaskId());
+    }
+
+    /**
+     * Get the number of tasks that expired in the queue before a worker took them.
+     * @return Expired task count
+     */
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    /**
+     * Get the number of tasks cancelled at their deadline while running.
+     * @return Timed-out task count
+     */
+    public long getTimedOutCount() {
+        return timedOutCount.sum();
+    }
+
+    /**
+     * Get the number of tasks the queue rejected because it was full.
+     * @return Rejected task count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Get the number of queued tasks dropped to make room for more urgent ones.
+     * @return Dropped task count
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Get the number of tasks given up without a result: expired, timed out, dead-lettered,
+     * or rejected or dropped by the queue.
+     * @return Abandoned task count
+     */
+    public long getAbandonedCount() {
+        return abandonedTasks.size();
+    }
+
+    /**
+     * Get the number of tasks dead-lettered after failing every attempt.
+     * @return Dead-lettered task count
+     */
+    public long getDeadLetterCount() {
+        return deadLetterCount.sum();
+    }
+
+    /**
+     * Get the number of tasks whose result arrived after their deadline.
+     * @return Late task count
+     */
+    public long getLateCount() {
+        return lateTasks.size();
+    }
+
+    /**
+     * Check whether a task's result arrived after its deadline.
+     * @param taskId Task ID to look up
+     * @return true if the task was late
+     * @throws IllegalArgumentException if taskId is negative
+     */
+    public boolean isLate(int taskId) {
+        return lateTasks.contains(taskId);
+    }
+
+    /**
+     * Get the number of duplicate results that were dropped.
+     * @return Duplicate count
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.sum();
+    }
+
+    /**
+     * Get a copy of all results, merged from every stripe and ordered by timestamp.
      * @return Copy of the results list
      */
-    public synchronized List<Result> getResults() {
-        return new ArrayList<>(results);
+    public List<Result> getResults() {
+        List<Result> merged = new ArrayList<>(getResultCount());
+        forEachResult(merged::add);
+        merged.sort(Comparator.comparingLong(Result::getTimestamp));
+        return merged;
+    }
+
+    /**
+     * Visit every result without copying them into a new list.
+     * Results are visited stripe by stripe, not in timestamp order, and results
+     * added while the iteration is running may or may not be visited.
+     * @param action Action to run for each result
+     */
+    public void forEachResult(Consumer<? super Result> action) {
+        for (Stripe stripe : stripes) {
+            stripe.forEach(action);
+        }
     }
 
     /**
      * Get the count of results.
      * @return Number of results collected
      */
-    public synchronized int getResultCount() {
-        return results.size();
+    public int getResultCount() {
+        return (int) resultCount.sum();
     }
 
     /**
      * Clear all results (useful for testing).
+     * Should not be called while workers are still adding results.
      */
-    public synchronized void clear() {
-        results.clear();
-        System.out.println("[ResultsCollector] All results cleared.");
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+        resultCount.reset();
+        completedTasks.clear();
+        expectedTasks.clear();
+        duplicateCount.reset();
+        abandonedTasks.clear();
+        lateTasks.clear();
+        expiredCount.reset();
+        timedOutCount.reset();
+        deadLetterCount.reset();
+        rejectedCount.reset();
+        droppedCount.reset();
+        AsyncLogger.info("[ResultsCollector] All results cleared.");
+    }
+
+    /**
+     * Count and log a result whose task already has one.
+     * @param result Duplicate result being dropped
+     */
+    private void rejectDuplicate(Result result) {
+        duplicateCount.increment();
+        AsyncLogger.warn("[ResultsCollector] Dropped duplicate result for task " + result.getTaskId()
+                + " from worker " + result.getWorkerId());
+    }
+
+    /**
+     * Pick the stripe owned by the calling thread.
+     * @return Stripe for the current thread
+     */
+    private Stripe currentStripe() {
+        long id = Thread.currentThread().getId();
+        // Spread sequential thread ids across the stripes
+        int hash = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+        return stripes[hash & stripeMask];
     }
-}
 
+    /**
+     * Append-only buffer guarded by its own lock.
+     * Readers go through the volatile size, so they never need the lock.
+     */
+    private static final class Stripe {
+        private volatile Result[] items = new Result[INITIAL_STRIPE_CAPACITY];
+        private volatile int size;
+
+        synchronized void add(Result result) {
+            Result[] current = items;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                items = current;
+            }
+            current[size] = result;
+            // Publishing the new size makes the element visible to readers
+            size = size + 1;
+        }
+
+        synchronized void addAll(Collection<Result> batch) {
+            Result[] current = items;
+            int needed = size + batch.size();
+            if (needed > current.length) {
+                current = Arrays.copyOf(current, Math.max(needed, current.length * 2));
+                items = current;
+            }
+            int index = size;
+            for (Result result : batch) {
+                current[index++] = result;
+            }
+            size = index;
+        }
+
+        void forEach(Consumer<? super Result> action) {
+            int count = size;
+            Result[] snapshot = items;
+            // A concurrent clear() can swap in a shorter, empty array
+            for (int i = 0; i < count && i < snapshot.length && snapshot[i] != null; i++) {
+                action.accept(snapshot[i]);
+            }
+        }
+
+        synchronized void clear() {
+            items = new Result[INITIAL_STRIPE_CAPACITY];
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How often and how soon a failed task is tried again.
+ * The delay before retry n (n = 1 after the first failure) is drawn uniformly from
+ * [0, min(maxBackoff, initialBackoff * multiplier^(n-1))] ("full jitter"), so tasks that
+ * failed together, e.g. because a dependency went down, do not all come back at once.
+ */
+public class RetryPolicy {
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double multiplier;
+
+    /**
+     * Constructor for a policy.
+     * @param maxAttempts Total attempts per task, including the first; 1 disables retries
+     * @param initialBackoff Upper bound of the delay before the first retry
+     * @param maxBackoff Cap on the delay bound as it grows
+     * @param multiplier Growth of the delay bound per attempt
+     * @param unit Unit of initialBackoff and maxBackoff
+     * @throws IllegalArgumentException if maxAttempts is not positive, a backoff is negative,
+     *         maxBackoff is less than initialBackoff, or multiplier is less than 1
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff, double multiplier, TimeUnit unit) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive: " + maxAttempts);
+        }
+        if (initialBackoff < 0 || maxBackoff < initialBackoff) {
+            throw new IllegalArgumentException("Invalid backoff range: " + initialBackoff + ".." + maxBackoff);
+        }
+        if (!(multiplier >= 1)) {
+            throw new IllegalArgumentException("Backoff multiplier must be at least 1: " + multiplier);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = unit.toNanos(initialBackoff);
+        this.maxBackoffNanos = unit.toNanos(maxBackoff);
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * Get the total number of attempts per task.
+     * @return Max attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Check whether a task that failed may be tried again.
+     * Cancellation at a deadline is final and never retried.
+     * @param attempts Attempts made so far, including the one that failed
+     * @param cause Exception the attempt failed with
+     * @return true if the task should be retried
+     */
+    public boolean shouldRetry(int attempts, Throwable cause) {
+        return attempts < maxAttempts && !(cause instanceof TaskTimeoutException);
+    }
+
+    /**
+     * Pick the delay before the next attempt.
+     * @param attempts Attempts made so far, at least 1
+     * @return Delay in nanoseconds
+     */
+    public long backoffNanos(int attempts) {
+        double bound = initialBackoffNanos * Math.pow(multiplier, Math.max(0, attempts - 1));
+        long cap = (long) Math.min(maxBackoffNanos, bound);
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * Describe the policy for logging.
+     * @return Policy string
+     */
+    @Override
+    public String toString() {
+        return "RetryPolicy{maxAttempts=" + maxAttempts + ", initialBackoffMs=" + TimeUnit.NANOSECONDS.toMillis(initialBackoffNanos)
+                + ", maxBackoffMs=" + TimeUnit.NANOSECONDS.toMillis(maxBackoffNanos) + ", multiplier=" + multiplier + "}";
+    }
+}
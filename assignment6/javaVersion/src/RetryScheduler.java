@@ -0,0 +1,178 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Puts failed tasks back in their queue after a backoff delay, or dead-letters them.
+ * The worker that saw the failure only records it and moves on to the next task; a
+ * timer thread puts the task back once its backoff has passed, so a task that keeps
+ * failing cannot hot-loop through the workers. Tasks whose retry policy is exhausted
+ * go to the dead-letter queue instead. Closing the scheduler stops its timer thread and
+ * dead-letters the tasks still waiting for their backoff.
+ */
+public class RetryScheduler {
+    // How long to wait before trying again when a bounded queue has no free slot
+    private static final long FULL_QUEUE_RETRY_MS = 50;
+    // How long close() waits for a retry that is being delivered
+    private static final long CLOSE_TIMEOUT_MS = 1000;
+
+    private final SharedTaskQueue taskQueue;
+    private final RetryPolicy policy;
+    private final DeadLetterQueue deadLetters;
+    private final ScheduledThreadPoolExecutor timer;
+    // Tasks scheduled for a retry and not yet put back or given up
+    private final Set<Task> pending;
+    private final LongAdder retryCount;
+    private volatile Consumer<? super Task> deadLetterHandler;
+
+    /**
+     * Constructor for a scheduler.
+     * @param taskQueue Queue failed tasks are put back into
+     * @param policy Retry policy
+     * @param deadLetters Queue for tasks that will not be retried
+     * @throws IllegalArgumentException if any argument is null
+     */
+    public RetryScheduler(SharedTaskQueue taskQueue, RetryPolicy policy, DeadLetterQueue deadLetters) {
+        if (taskQueue == null || policy == null || deadLetters == null) {
+            throw new IllegalArgumentException("Queue, policy and dead-letter queue are required.");
+        }
+        this.taskQueue = taskQueue;
+        this.policy = policy;
+        this.deadLetters = deadLetters;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "retry-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = ConcurrentHashMap.newKeySet();
+        this.retryCount = new LongAdder();
+    }
+
+    /**
+     * Receive the tasks that are dead-lettered, e.g. to account for them in the results.
+     * The handler runs on the worker's thread and must be thread-safe.
+     * @param handler Handler for dead-lettered tasks, or null
+     */
+    public void onDeadLetter(Consumer<? super Task> handler) {
+        this.deadLetterHandler = handler;
+    }
+
+    /**
+     * Handle a failed attempt: schedule the task to be put back after its backoff, or
+     * dead-letter it if the policy allows no more attempts.
+     * @param task Task that failed
+     * @param cause Exception the attempt failed with
+     * @return true if a retry was scheduled, false if the task was dead-lettered, which
+     *         is also what happens once the scheduler has been closed
+     */
+    public boolean retry(Task task, Throwable cause) {
+        int attempts = task.recordFailedAttempt();
+        if (!policy.shouldRetry(attempts, cause)) {
+            AsyncLogger.warn("[Retry] Task " + task.getTaskId() + " dead-lettered after " + attempts + " attempts: " + cause);
+            deadLetter(task, cause);
+            return false;
+        }
+        long delay = policy.backoffNanos(attempts);
+        // Keep the queue from looking drained while the task is away
+        taskQueue.beginRetry();
+        retryCount.increment();
+        AsyncLogger.warn("[Retry] Task " + task.getTaskId() + " failed (attempt " + attempts + " of " + policy.getMaxAttempts()
+                + "), retrying in " + TimeUnit.NANOSECONDS.toMillis(delay) + " ms: " + cause);
+        pending.add(task);
+        try {
+            timer.schedule(() -> deliver(task), delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile; the timer will never put the task back
+            pending.remove(task);
+            taskQueue.endRetry();
+            deadLetter(task, cause);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stop the timer thread and dead-letter every task still waiting for its retry,
+     * so nothing is lost when the engines stop before a backoff has passed.
+     * Normally called once the engines have finished, when no retry is pending.
+     * Retries requested afterwards are dead-lettered right away.
+     */
+    public void close() {
+        timer.shutdownNow();
+        try {
+            // Let a delivery that is already running finish, so its task is not handled twice
+            timer.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Task task : pending) {
+            if (pending.remove(task)) {
+                AsyncLogger.warn("[Retry] Task " + task.getTaskId() + " dead-lettered: scheduler closed before its retry");
+                deadLetter(task, new IllegalStateException("Retry scheduler closed before the retry was delivered"));
+                taskQueue.endRetry();
+            }
+        }
+    }
+
+    /**
+     * Get the dead-letter queue.
+     * @return Dead-letter queue
+     */
+    public DeadLetterQueue getDeadLetters() {
+        return deadLetters;
+    }
+
+    /**
+     * Get the retry policy.
+     * @return Policy
+     */
+    public RetryPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Get the number of retries scheduled.
+     * @return Retry count
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * Timer action: put a task back, or try again shortly if the queue is full.
+     * @param task Task whose backoff has passed
+     */
+    private void deliver(Task task) {
+        try {
+            if (taskQueue.requeue(task)) {
+                pending.remove(task);
+            } else {
+                timer.schedule(() -> deliver(task), FULL_QUEUE_RETRY_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // Closed while the queue was full; close() dead-letters the task
+        } catch (RuntimeException e) {
+            AsyncLogger.error("[Retry] Could not requeue task " + task.getTaskId() + ": " + e.getMessage(), e);
+            pending.remove(task);
+            deadLetter(task, e);
+            taskQueue.endRetry();
+        }
+    }
+
+    /**
+     * Park a task in the dead-letter queue and notify the handler.
+     * @param task Task that will not be retried
+     * @param cause Exception of the last attempt
+     */
+    private void deadLetter(Task task, Throwable cause) {
+        deadLetters.add(task, cause);
+        Consumer<? super Task> handler = deadLetterHandler;
+        if (handler != null) {
+            handler.accept(task);
+        }
+    }
+}
@@ -1,95 +1,724 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * Thread-safe shared queue for tasks.
- * Uses BlockingQueue for thread-safe operations with proper synchronization.
+ * Relies on the BlockingQueue's own internal locking instead of a global monitor,
+ * so producers and consumers never serialize on this object.
+ * Closing the queue enqueues a poison pill that wakes up any blocked worker.
+ * Tasks are served in FIFO order unless a TaskOrdering is supplied, in which case
+ * the queue schedules by Task.getPriority() with FIFO tie-breaking.
+ * A queue with a capacity applies backpressure to producers according to its OverflowPolicy.
+ * With a TaskJournal attached, every accepted task is journaled before workers can see it.
+ * Tasks whose deadline passes while they are queued are dropped at dequeue time instead
+ * of being handed to a worker, and passed to the expiry handler. Tasks the overflow policy
+ * rejects or drops are likewise passed to the rejection and drop handlers.
+ * Failed tasks can be put back with a delay through beginRetry()/requeue(); the queue
+ * does not count as finished until every such retry has landed or been given up.
+ * Tasks a worker took but could not process are put back with returnTasks(), which
+ * never blocks, even on a full queue.
  */
 public class SharedTaskQueue {
-    private BlockingQueue<Task> queue;
-    private boolean isClosed;
 
     /**
-     * Constructor initializes the queue.
+     * What addTask does when a bounded queue is full.
+     */
+    public enum OverflowPolicy {
+        // Wait until a worker frees a slot
+        BLOCK,
+        // Wait up to the offer timeout, then reject the task
+        TIMEOUT,
+        // Reject the task immediately
+        REJECT,
+        // Evict the least urgent queued task if the new one is more urgent, otherwise reject it
+        DROP_LOWEST_PRIORITY
+    }
+
+    // Sentinel placed at the tail of the queue on close; never handed out to workers
+    private static final Task POISON_PILL = new Task(-1, null);
+
+    private static final int INITIAL_PRIORITY_CAPACITY = 64;
+
+    // Used to pick eviction victims in a FIFO queue: higher priority values are kept
+    private static final TaskOrdering DEFAULT_DROP_ORDERING = new TaskOrdering(TaskOrdering.Direction.HIGHEST_FIRST);
+
+    private final BlockingQueue<Task> queue;
+    private final TaskOrdering ordering;
+    private final AtomicLong sequence;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long offerTimeoutNanos;
+    // One permit per free slot; null when the queue is unbounded
+    private final Semaphore freeSlots;
+    // Slots returned tasks took beyond the capacity; repaid before slots are freed again
+    private final AtomicInteger overdrawnSlots;
+    private final LongAdder producerStallNanos;
+    private final LongAdder rejectedCount;
+    private final LongAdder droppedCount;
+    private volatile boolean isClosed;
+    // Whether the close marker is in the queue; it is held back while retries are pending
+    private volatile boolean pillQueued;
+    private volatile int pendingRetries;
+    private volatile TaskJournal journal;
+    private final LongAdder expiredCount;
+    private volatile long taskTimeoutNanos;
+    private volatile Consumer<? super Task> expiryHandler;
+    private volatile Consumer<? super Task> rejectionHandler;
+    private volatile Consumer<? super Task> dropHandler;
+
+    /**
+     * Constructor initializes an unbounded FIFO queue.
      */
     public SharedTaskQueue() {
-        this.queue = new LinkedBlockingQueue<>();
+        this(null, 0, OverflowPolicy.BLOCK, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor initializes an unbounded priority-scheduling queue.
+     * @param ordering Ordering used to pick the next task
+     * @throws IllegalArgumentException if ordering is null
+     */
+    public SharedTaskQueue(TaskOrdering ordering) {
+        this(requireOrdering(ordering), 0, OverflowPolicy.BLOCK, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor initializes a queue, optionally bounded and priority-scheduled.
+     * @param ordering Ordering used to pick the next task, or null for FIFO
+     * @param capacity Maximum number of queued tasks, 0 for unbounded
+     * @param overflowPolicy What addTask does when the queue is full
+     * @param offerTimeout How long addTask waits under the TIMEOUT policy
+     * @param unit Unit of the offer timeout
+     * @throws IllegalArgumentException if capacity or offerTimeout is negative, or overflowPolicy is null
+     */
+    public SharedTaskQueue(TaskOrdering ordering, int capacity, OverflowPolicy overflowPolicy,
+                           long offerTimeout, TimeUnit unit) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("Overflow policy cannot be null.");
+        }
+        if (offerTimeout < 0) {
+            throw new IllegalArgumentException("Offer timeout cannot be negative: " + offerTimeout);
+        }
+        if (ordering == null) {
+            this.queue = new LinkedBlockingQueue<>();
+        } else {
+            // The close marker always sorts after every real task
+            this.queue = new PriorityBlockingQueue<>(INITIAL_PRIORITY_CAPACITY, (a, b) -> {
+                if (a == POISON_PILL || b == POISON_PILL) {
+                    return a == b ? 0 : (a == POISON_PILL ? 1 : -1);
+                }
+                return ordering.compare(a, b);
+            });
+        }
+        this.ordering = ordering;
+        this.sequence = new AtomicLong();
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.offerTimeoutNanos = unit.toNanos(offerTimeout);
+        this.freeSlots = capacity > 0 ? new Semaphore(capacity) : null;
+        this.overdrawnSlots = new AtomicInteger();
+        this.producerStallNanos = new LongAdder();
+        this.rejectedCount = new LongAdder();
+        this.droppedCount = new LongAdder();
+        this.expiredCount = new LongAdder();
         this.isClosed = false;
     }
 
     /**
-     * Add a task to the queue with synchronization.
+     * Add a task to the queue.
+     * On a full bounded queue the overflow policy decides whether to wait, reject or evict.
      * @param task Task to be added
+     * @return true if the task was queued, false if it was rejected
      * @throws IllegalStateException if queue is closed
+     * @throws NullPointerException if task is null
+     * @throws java.io.UncheckedIOException if the attached journal cannot be written
      */
-    public synchronized void addTask(Task task) {
+    public boolean addTask(Task task) {
         if (isClosed) {
             throw new IllegalStateException("Queue is closed. Cannot add new tasks.");
         }
         if (task == null) {
             throw new NullPointerException("Cannot add null task to queue.");
         }
-        try {
-            queue.put(task);
-            System.out.println("[Queue] Added task: " + task.getTaskId() + " (Queue size: " + queue.size() + ")");
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("[Queue] Interrupted while adding task: " + e.getMessage());
+        if (freeSlots != null && !acquireSlot(task)) {
+            return false;
+        }
+        TaskJournal taskJournal = journal;
+        if (taskJournal != null) {
+            try {
+                taskJournal.append(task);
+            } catch (RuntimeException e) {
+                releaseSlots(1);
+                throw e;
+            }
         }
+        long now = System.nanoTime();
+        applyTimeout(task, now);
+        task.markEnqueued(sequence.getAndIncrement(), now);
+        queue.offer(task);
+        AsyncLogger.debug("[Queue] Added task: {} (Queue size: {})", task.getTaskId(), size());
+        return true;
     }
 
     /**
-     * Retrieve a task from the queue with synchronization.
-     * Returns null if queue is empty and closed.
-     * @return Task from queue, or null if empty
+     * Add a batch of tasks with a single closed check, sequence reservation and log line.
+     * A bounded queue applies its overflow policy to each task in turn.
+     * @param tasks Tasks to be added, in order
+     * @return Number of tasks queued
+     * @throws IllegalStateException if queue is closed
+     * @throws NullPointerException if the collection or any task in it is null
+     * @throws java.io.UncheckedIOException if the attached journal cannot be written
      */
-    public synchronized Task getTask() {
-        if (queue.isEmpty() && isClosed) {
-            return null;
+    public int addTasks(Collection<Task> tasks) {
+        if (isClosed) {
+            throw new IllegalStateException("Queue is closed. Cannot add new tasks.");
         }
-        try {
+        if (tasks == null) {
+            throw new NullPointerException("Cannot add null task collection to queue.");
+        }
+        for (Task task : tasks) {
+            if (task == null) {
+                throw new NullPointerException("Cannot add null task to queue.");
+            }
+        }
+        if (freeSlots != null) {
+            int added = 0;
+            for (Task task : tasks) {
+                if (addTask(task)) {
+                    added++;
+                }
+            }
+            return added;
+        }
+        TaskJournal taskJournal = journal;
+        if (taskJournal != null) {
+            for (Task task : tasks) {
+                taskJournal.append(task);
+            }
+        }
+        long nextSequence = sequence.getAndAdd(tasks.size());
+        long now = System.nanoTime();
+        for (Task task : tasks) {
+            applyTimeout(task, now);
+            task.markEnqueued(nextSequence++, now);
+        }
+        queue.addAll(tasks);
+        AsyncLogger.debug("[Queue] Added batch of {} tasks (Queue size: {})", tasks.size(), size());
+        return tasks.size();
+    }
+
+    /**
+     * Put back tasks a worker took but did not process, e.g. because it was interrupted.
+     * Unlike addTask(), this works after close() and never waits or applies the overflow
+     * policy, so it is safe to call with the interrupt flag set: on a full bounded queue the
+     * tasks go over the capacity, and the next slots freed by workers are not handed to
+     * producers until the queue is back within it. The tasks keep their deadlines and are
+     * still pending in the journal, so they are not appended again.
+     * @param tasks Tasks to put back, in order
+     * @throws NullPointerException if the collection or any task in it is null
+     */
+    public void returnTasks(Collection<Task> tasks) {
+        for (Task task : tasks) {
+            if (task == null) {
+                throw new NullPointerException("Cannot return null task to queue.");
+            }
+        }
+        for (Task task : tasks) {
+            if (freeSlots != null && !freeSlots.tryAcquire()) {
+                overdrawnSlots.incrementAndGet();
+            }
+            task.markEnqueued(sequence.getAndIncrement(), System.nanoTime());
+            queue.offer(task);
+        }
+        AsyncLogger.debug("[Queue] Returned {} tasks (Queue size: {})", tasks.size(), size());
+    }
+
+    /**
+     * Make the queue durable: tasks are appended to the journal as they are added.
+     * Attach the same journal to the ResultsCollector so completed tasks are acknowledged.
+     * @param journal Journal to append to, or null to stop journaling
+     */
+    public void attachJournal(TaskJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Give every task added from now on that has no deadline of its own a deadline
+     * relative to the time it is first queued.
+     * @param timeout Time a task may take from enqueue to finish, 0 for no default deadline
+     * @param unit Unit of the timeout
+     * @throws IllegalArgumentException if timeout is negative
+     */
+    public void setTaskTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Task timeout cannot be negative: " + timeout);
+        }
+        this.taskTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Receive the tasks that expire in the queue, e.g. to report them.
+     * The handler runs on the dequeuing worker's thread and must be thread-safe.
+     * @param handler Handler for expired tasks, or null to only count them
+     */
+    public void onExpired(Consumer<? super Task> handler) {
+        this.expiryHandler = handler;
+    }
+
+    /**
+     * Receive the tasks a full bounded queue turns away, e.g. to report them.
+     * The handler runs on the adding producer's thread and must be thread-safe.
+     * @param handler Handler for rejected tasks, or null to only count them
+     */
+    public void onRejected(Consumer<? super Task> handler) {
+        this.rejectionHandler = handler;
+    }
+
+    /**
+     * Receive the queued tasks evicted to make room for more urgent ones, e.g. to report them.
+     * The handler runs on the adding producer's thread and must be thread-safe.
+     * @param handler Handler for dropped tasks, or null to only count them
+     */
+    public void onDropped(Consumer<? super Task> handler) {
+        this.dropHandler = handler;
+    }
+
+    /**
+     * Retrieve a task from the queue without waiting.
+     * Returns null if the queue is currently empty or has been closed and drained.
+     * @return Task from queue, or null if none is available
+     */
+    public Task getTask() {
+        while (true) {
             Task task = queue.poll();
-            if (task != null) {
-                System.out.println("[Queue] Retrieved task: " + task.getTaskId() + " (Queue size: " + queue.size() + ")");
+            if (task == POISON_PILL) {
+                // Leave the pill in place for the other workers
+                returnPill();
+                return null;
+            }
+            if (task == null) {
+                return null;
+            }
+            releaseSlots(1);
+            if (!expire(task)) {
+                AsyncLogger.debug("[Queue] Retrieved task: {} (Queue size: {})", task.getTaskId(), size());
+                return task;
             }
-            return task;
-        } catch (Exception e) {
-            System.err.println("[Queue] Error retrieving task: " + e.getMessage());
-            return null;
         }
     }
 
+    /**
+     * Retrieve a task from the queue, blocking up to the given timeout for one to arrive.
+     * Returns immediately with null once the queue is closed and drained, so callers
+     * can tell shutdown apart from a timeout by checking {@link #isClosed()}.
+     * @param timeout Maximum time to wait
+     * @param unit Unit of the timeout
+     * @return Task from queue, or null on timeout or when closed and drained
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Task getTask(long timeout, TimeUnit unit) throws InterruptedException {
+        while (true) {
+            Task task = queue.poll(timeout, unit);
+            if (task == null) {
+                return null;
+            }
+            if (task != POISON_PILL) {
+                releaseSlots(1);
+                if (expire(task)) {
+                    continue;
+                }
+                AsyncLogger.debug("[Queue] Retrieved task: {} (Queue size: {})", task.getTaskId(), size());
+                return task;
+            }
+            // Put the pill back so every other blocked worker also wakes up
+            returnPill();
+            if (queue.size() <= 1) {
+                return null;
+            }
+            // Tasks raced in behind the pill; keep draining them
+        }
+    }
+
+    /**
+     * Move up to maxBatch tasks into the sink, blocking up to the timeout for the first one.
+     * The rest of the batch is taken in one pass without waiting.
+     * Returns 0 once the queue is closed and drained, so callers can tell shutdown apart
+     * from a timeout by checking {@link #isClosed()}.
+     * @param sink Collection the tasks are appended to
+     * @param maxBatch Maximum number of tasks to take
+     * @param timeout Maximum time to wait for the first task
+     * @param unit Unit of the timeout
+     * @return Number of tasks added to the sink
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalArgumentException if maxBatch is not positive
+     */
+    public int drainTo(Collection<? super Task> sink, int maxBatch, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatch);
+        }
+        Task first = getTask(timeout, unit);
+        if (first == null) {
+            return 0;
+        }
+        sink.add(first);
+        int drained = 1;
+        if (maxBatch > 1) {
+            List<Task> rest = new ArrayList<>(Math.min(maxBatch - 1, INITIAL_PRIORITY_CAPACITY));
+            queue.drainTo(rest, maxBatch - 1);
+            // The close marker may have come along with the batch; it never reaches a worker.
+            // returnPill() decides whether it goes back, since a retry may have withdrawn it
+            // after drainTo took it
+            if (rest.remove(POISON_PILL)) {
+                returnPill();
+            }
+            releaseSlots(rest.size());
+            for (Task task : rest) {
+                if (!expire(task)) {
+                    sink.add(task);
+                    drained++;
+                }
+            }
+        }
+        AsyncLogger.debug("[Queue] Retrieved batch of {} tasks (Queue size: {})", drained, size());
+        return drained;
+    }
+
     /**
      * Check if the queue is empty.
      * @return true if queue is empty, false otherwise
      */
-    public synchronized boolean isEmpty() {
-        return queue.isEmpty();
+    public boolean isEmpty() {
+        return size() == 0;
     }
 
     /**
-     * Get the current size of the queue.
+     * Get the current size of the queue, not counting the close marker.
      * @return Queue size
      */
-    public synchronized int size() {
-        return queue.size();
+    public int size() {
+        int size = queue.size();
+        return pillQueued ? Math.max(0, size - 1) : size;
+    }
+
+    /**
+     * Get the ordering used by this queue.
+     * @return Task ordering, or null if the queue is FIFO
+     */
+    public TaskOrdering getOrdering() {
+        return ordering;
+    }
+
+    /**
+     * Get the maximum number of queued tasks.
+     * @return Capacity, or 0 if the queue is unbounded
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the policy applied when the queue is full.
+     * @return Overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Get the total time producers have spent waiting for a free slot.
+     * @return Producer stall time in nanoseconds
+     */
+    public long getProducerStallNanos() {
+        return producerStallNanos.sum();
+    }
+
+    /**
+     * Get the number of tasks turned away because the queue was full.
+     * @return Rejected task count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Get the number of queued tasks evicted to make room for more urgent ones.
+     * @return Dropped task count
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Get the number of tasks dropped because their deadline passed while they were queued.
+     * @return Expired task count
+     */
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    /**
+     * Announce that a task taken from this queue will be put back later with requeue().
+     * Until then the queue stays open for consumers even if it has been closed.
+     */
+    public synchronized void beginRetry() {
+        pendingRetries++;
+        if (pillQueued) {
+            // Workers must keep waiting for the retry instead of seeing the queue as drained
+            queue.remove(POISON_PILL);
+            pillQueued = false;
+        }
+    }
+
+    /**
+     * Put a task announced with beginRetry() back in the queue, even if the queue has been
+     * closed to producers. The task skips the overflow policy, so a full bounded queue
+     * turns it away instead of blocking the caller.
+     * @param task Task to put back
+     * @return true if the task was queued, false if a bounded queue is full and the caller
+     *         should try again later (the retry is still pending)
+     * @throws NullPointerException if task is null
+     */
+    public boolean requeue(Task task) {
+        if (task == null) {
+            throw new NullPointerException("Cannot requeue null task.");
+        }
+        if (freeSlots != null && !freeSlots.tryAcquire()) {
+            return false;
+        }
+        // The task is still pending in the journal, so it is not appended again
+        task.markEnqueued(sequence.getAndIncrement(), System.nanoTime());
+        queue.offer(task);
+        AsyncLogger.debug("[Queue] Requeued task: {} (Queue size: {})", task.getTaskId(), size());
+        endRetry();
+        return true;
+    }
+
+    /**
+     * Give up a retry announced with beginRetry() without putting the task back.
+     */
+    public synchronized void endRetry() {
+        pendingRetries--;
+        queuePillIfDone();
+    }
+
+    /**
+     * Get the number of tasks announced for a retry that have not been put back yet.
+     * @return Pending retry count
+     */
+    public int getPendingRetries() {
+        return pendingRetries;
     }
 
     /**
      * Close the queue to signal no more tasks will be added.
-     * This helps worker threads know when to stop waiting.
+     * Wakes up every worker blocked in {@link #getTask(long, TimeUnit)}, once no retries are pending.
      */
     public synchronized void close() {
+        if (isClosed) {
+            return;
+        }
         this.isClosed = true;
-        System.out.println("[Queue] Queue closed. No more tasks will be added.");
+        queuePillIfDone();
+        AsyncLogger.info("[Queue] Queue closed. No more tasks will be added.");
     }
 
     /**
-     * Check if the queue is closed.
+     * Check if the queue is closed and no retries are pending, so no more tasks will arrive.
      * @return true if closed, false otherwise
      */
-    public synchronized boolean isClosed() {
-        return isClosed;
+    public boolean isClosed() {
+        return isClosed && pendingRetries == 0;
+    }
+
+    /**
+     * Enqueue the close marker once the queue is closed and no retries are pending.
+     */
+    private synchronized void queuePillIfDone() {
+        if (isClosed && pendingRetries == 0 && !pillQueued) {
+            pillQueued = true;
+            queue.offer(POISON_PILL);
+        }
     }
-}
 
+    /**
+     * Put back a close marker a consumer took out, unless a retry withdrew it meanwhile.
+     * A retry that could not withdraw the marker because a consumer held it may have
+     * ended and queued a new one already; the held marker is then dropped, so the queue
+     * never holds more than one. The marker is only offered under this lock, and the scan
+     * only happens during shutdown, when few tasks are left.
+     */
+    private synchronized void returnPill() {
+        if (pillQueued && !queue.contains(POISON_PILL)) {
+            queue.offer(POISON_PILL);
+        }
+    }
+
+    /**
+     * Reserve a slot for a task in a bounded queue according to the overflow policy.
+     * @param task Task that needs a slot
+     * @return true if a slot was reserved, false if the task is rejected
+     */
+    private boolean acquireSlot(Task task) {
+        if (freeSlots.tryAcquire()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            switch (overflowPolicy) {
+                case BLOCK:
+                    freeSlots.acquire();
+                    return true;
+                case TIMEOUT:
+                    if (freeSlots.tryAcquire(offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                        return true;
+                    }
+                    break;
+                case DROP_LOWEST_PRIORITY:
+                    if (evictLessUrgentThan(task)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            AsyncLogger.warn("[Queue] Interrupted while adding task: " + e.getMessage());
+            return false;
+        } finally {
+            producerStallNanos.add(System.nanoTime() - start);
+        }
+        rejectedCount.increment();
+        AsyncLogger.debug("[Queue] Rejected task: {} (Queue size: {})", task.getTaskId(), size());
+        Consumer<? super Task> handler = rejectionHandler;
+        if (handler != null) {
+            handler.accept(task);
+        }
+        return false;
+    }
+
+    /**
+     * Make room for a task by removing the least urgent queued task, whose slot is handed
+     * over to the new task. Scans the queue, so it is only used once the queue is full.
+     * @param task Task that needs a slot
+     * @return true if a slot was freed for the task, false if nothing queued is less urgent
+     */
+    private boolean evictLessUrgentThan(Task task) {
+        TaskOrdering dropOrdering = ordering != null ? ordering : DEFAULT_DROP_ORDERING;
+        while (true) {
+            if (freeSlots.tryAcquire()) {
+                return true;
+            }
+            Task victim = null;
+            for (Task queued : queue) {
+                if (queued != POISON_PILL && (victim == null || dropOrdering.compare(queued, victim) > 0)) {
+                    victim = queued;
+                }
+            }
+            if (victim == null || dropOrdering.urgency(victim) >= dropOrdering.urgency(task)) {
+                return false;
+            }
+            // A worker may have taken the victim in the meantime; if so, look again
+            if (queue.remove(victim)) {
+                droppedCount.increment();
+                // Dropping is deliberate, so the victim must not come back on replay
+                TaskJournal taskJournal = journal;
+                if (taskJournal != null) {
+                    taskJournal.acknowledge(victim.getTaskId());
+                }
+                AsyncLogger.debug("[Queue] Dropped task: {} to make room for task: {}", victim.getTaskId(), task.getTaskId());
+                Consumer<? super Task> handler = dropHandler;
+                if (handler != null) {
+                    handler.accept(victim);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Stamp the default deadline on a task that is queued for the first time without one.
+     * @param task Task being queued
+     * @param now Enqueue time from System.nanoTime()
+     */
+    private void applyTimeout(Task task, long now) {
+        long timeout = taskTimeoutNanos;
+        if (timeout > 0 && task.getDeadlineNanos() == 0) {
+            // 0 means no deadline, so never stamp it by accident
+            long deadline = now + timeout;
+            task.setDeadlineNanos(deadline == 0 ? 1 : deadline);
+        }
+    }
+
+    /**
+     * Drop a dequeued task if its deadline has passed.
+     * @param task Task just taken out of the queue
+     * @return true if the task expired and must not be processed
+     */
+    private boolean expire(Task task) {
+        if (task.getDeadlineNanos() == 0 || !task.isExpired(System.nanoTime())) {
+            return false;
+        }
+        expiredCount.increment();
+        // Expiry is final, so the task must not come back on replay
+        TaskJournal taskJournal = journal;
+        if (taskJournal != null) {
+            taskJournal.acknowledge(task.getTaskId());
+        }
+        AsyncLogger.debug("[Queue] Expired task: {} (Queue size: {})", task.getTaskId(), size());
+        Consumer<? super Task> handler = expiryHandler;
+        if (handler != null) {
+            handler.accept(task);
+        }
+        return true;
+    }
+
+    /**
+     * Return slots to a bounded queue after tasks are taken out.
+     * @param count Number of slots freed
+     */
+    private void releaseSlots(int count) {
+        if (freeSlots == null || count <= 0) {
+            return;
+        }
+        // Slots taken over the capacity by returned tasks are repaid first
+        int overdrawn;
+        while ((overdrawn = overdrawnSlots.get()) > 0) {
+            int repaid = Math.min(overdrawn, count);
+            if (overdrawnSlots.compareAndSet(overdrawn, overdrawn - repaid)) {
+                count -= repaid;
+                break;
+            }
+        }
+        if (count > 0) {
+            freeSlots.release(count);
+        }
+    }
+
+    /**
+     * Validate the ordering passed to the priority constructor.
+     * @param ordering Ordering to check
+     * @return The same ordering
+     * @throws IllegalArgumentException if ordering is null
+     */
+    private static TaskOrdering requireOrdering(TaskOrdering ordering) {
+        if (ordering == null) {
+            throw new IllegalArgumentException("Ordering cannot be null.");
+        }
+        return ordering;
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Downstream consumer for streaming mode.
+ * Receives each result on the worker thread that produced it, logs it, and keeps only
+ * running counts, so memory stays bounded no matter how many tasks flow through.
+ */
+public class StreamingResultConsumer implements Consumer<Result> {
+    private final long startNanos;
+    private final AtomicLong firstResultNanos;
+    private final LongAdder resultCount;
+    private final ConcurrentHashMap<Integer, LongAdder> countsByWorker;
+
+    /**
+     * Constructor starts the clock used for time-to-first-result.
+     */
+    public StreamingResultConsumer() {
+        this.startNanos = System.nanoTime();
+        this.firstResultNanos = new AtomicLong();
+        this.resultCount = new LongAdder();
+        this.countsByWorker = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Handle a result as soon as it is produced.
+     * @param result Result handed over by a worker
+     */
+    @Override
+    public void accept(Result result) {
+        firstResultNanos.compareAndSet(0, System.nanoTime());
+        resultCount.increment();
+        countsByWorker.computeIfAbsent(result.getWorkerId(), id -> new LongAdder()).increment();
+        if (AsyncLogger.isEnabled(AsyncLogger.Level.INFO)) {
+            AsyncLogger.info("[Consumer] " + result);
+        }
+    }
+
+    /**
+     * Get the number of results received.
+     * @return Result count
+     */
+    public long getResultCount() {
+        return resultCount.sum();
+    }
+
+    /**
+     * Get the number of results received from one worker.
+     * @param workerId Worker ID
+     * @return Result count for the worker
+     */
+    public long getResultCount(int workerId) {
+        LongAdder count = countsByWorker.get(workerId);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Get the time from construction until the first result arrived.
+     * @return Time to first result in nanoseconds, or -1 if no result has arrived
+     */
+    public long getTimeToFirstResultNanos() {
+        long first = firstResultNanos.get();
+        return first == 0 ? -1 : first - startNanos;
+    }
+}
@@ -1,11 +1,19 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Task class representing a data processing task.
- * Contains task ID, data to process, and optional priority.
+ * Contains task ID, data to process, and optional priority and deadline.
+ * Deadlines are System.nanoTime() values, so they only mean something inside the
+ * process that set them and are not written to task files or the journal.
  */
 public class Task {
     private int taskId;
     private String data;
     private int priority;
+    private long sequence;
+    private long enqueueTimeNanos;
+    private volatile long deadlineNanos;
+    private final AtomicInteger attempts = new AtomicInteger();
 
     /**
      * Constructor with task ID and data.
@@ -54,6 +62,82 @@ public class Task {
         return priority;
     }
 
+    /**
+     * Get the sequence number assigned when the task was last enqueued.
+     * Used to keep FIFO order between tasks of equal priority.
+     * @return Enqueue sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the time the task was last enqueued.
+     * @return Enqueue time from System.nanoTime()
+     */
+    public long getEnqueueTimeNanos() {
+        return enqueueTimeNanos;
+    }
+
+    /**
+     * Get the task's deadline.
+     * @return Deadline from System.nanoTime(), or 0 if the task has none
+     */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * Set the time by which the task should be finished; work still running then is cancelled.
+     * @param deadlineNanos Deadline from System.nanoTime(), or 0 to remove the deadline
+     */
+    public void setDeadlineNanos(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Check whether the task's deadline has passed.
+     * @param nowNanos Current time from System.nanoTime()
+     * @return true if the task has a deadline and it is not after nowNanos
+     */
+    public boolean isExpired(long nowNanos) {
+        long deadline = deadlineNanos;
+        return deadline != 0 && nowNanos - deadline >= 0;
+    }
+
+    /**
+     * Get the number of failed attempts to process the task.
+     * @return Failed attempt count
+     */
+    public int getAttempts() {
+        return attempts.get();
+    }
+
+    /**
+     * Count a failed attempt to process the task.
+     * @return Failed attempts so far, including this one
+     */
+    public int recordFailedAttempt() {
+        return attempts.incrementAndGet();
+    }
+
+    /**
+     * Forget earlier failed attempts, e.g. before replaying a dead-lettered task.
+     */
+    public void resetAttempts() {
+        attempts.set(0);
+    }
+
+    /**
+     * Stamp the task as it enters a queue.
+     * @param sequence Queue-wide sequence number
+     * @param enqueueTimeNanos Enqueue time from System.nanoTime()
+     */
+    void markEnqueued(long sequence, long enqueueTimeNanos) {
+        this.sequence = sequence;
+        this.enqueueTimeNanos = enqueueTimeNanos;
+    }
+
     /**
      * String representation of the task for logging.
      * @return String representation
@@ -0,0 +1,37 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Binary codec for Task: task ID (int), priority (int), then the data as a
+ * length-prefixed UTF-8 string. Queue bookkeeping (sequence, enqueue time) is not stored.
+ * Instances keep a decode scratch array, so use one per thread.
+ */
+public class TaskCodec implements BinaryCodec<Task> {
+    // "TASK"
+    private static final int FORMAT_ID = 0x5441534B;
+
+    private final BinaryStrings.Scratch scratch = new BinaryStrings.Scratch();
+
+    @Override
+    public int formatId() {
+        return FORMAT_ID;
+    }
+
+    @Override
+    public int encodedSize(Task task) {
+        return 8 + BinaryStrings.encodedSize(task.getData());
+    }
+
+    @Override
+    public void encode(Task task, ByteBuffer buffer) {
+        buffer.putInt(task.getTaskId());
+        buffer.putInt(task.getPriority());
+        BinaryStrings.put(buffer, task.getData());
+    }
+
+    @Override
+    public Task decode(ByteBuffer buffer) {
+        int taskId = buffer.getInt();
+        int priority = buffer.getInt();
+        return new Task(taskId, BinaryStrings.get(buffer, scratch), priority);
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Concurrent set of non-negative task IDs stored as a paged bitset.
+ * Each ID costs one bit, and pages of PAGE_IDS bits are only allocated once an ID in
+ * their range is added, so 100 million dense IDs take about 12 MB instead of the
+ * gigabytes a HashSet of boxed integers would need. Adding and testing an ID are O(1)
+ * and lock-free; set differences are computed a 64-bit word at a time.
+ */
+public class TaskIdSet {
+    // IDs per page; a page is PAGE_IDS / 64 longs (8 KB)
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_IDS = 1 << PAGE_BITS;
+    private static final int PAGE_COUNT = 1 << (Integer.SIZE - 1 - PAGE_BITS);
+
+    private final AtomicReferenceArray<AtomicLongArray> pages;
+    private final LongAdder size;
+
+    /**
+     * Constructor for an empty set.
+     */
+    public TaskIdSet() {
+        this.pages = new AtomicReferenceArray<>(PAGE_COUNT);
+        this.size = new LongAdder();
+    }
+
+    /**
+     * Add a task ID.
+     * @param taskId ID to add
+     * @return true if the ID was added, false if it was already present
+     * @throws IllegalArgumentException if taskId is negative
+     */
+    public boolean add(int taskId) {
+        AtomicLongArray page = page(taskId, true);
+        int word = (taskId & (PAGE_IDS - 1)) >>> 6;
+        long mask = 1L << taskId;
+        while (true) {
+            long bits = page.get(word);
+            if ((bits & mask) != 0) {
+                return false;
+            }
+            if (page.compareAndSet(word, bits, bits | mask)) {
+                size.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Check whether a task ID is present.
+     * @param taskId ID to look up
+     * @return true if the ID has been added
+     * @throws IllegalArgumentException if taskId is negative
+     */
+    public boolean contains(int taskId) {
+        AtomicLongArray page = page(taskId, false);
+        return page != null && (page.get((taskId & (PAGE_IDS - 1)) >>> 6) & (1L << taskId)) != 0;
+    }
+
+    /**
+     * Get the number of IDs in the set.
+     * @return ID count
+     */
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * Count the IDs in this set that are in none of the other sets.
+     * @param others Sets of IDs to leave out
+     * @return Size of the difference
+     */
+    public long countExcept(TaskIdSet... others) {
+        long count = 0;
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            AtomicLongArray page = pages.get(p);
+            if (page == null) {
+                continue;
+            }
+            for (int word = 0; word < page.length(); word++) {
+                count += Long.bitCount(page.get(word) & ~union(others, p, word));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Visit, in ascending order, the IDs in this set that are in none of the other sets.
+     * @param action Action to run for each ID
+     * @param others Sets of IDs to leave out
+     */
+    public void forEachExcept(IntConsumer action, TaskIdSet... others) {
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            AtomicLongArray page = pages.get(p);
+            if (page == null) {
+                continue;
+            }
+            for (int word = 0; word < page.length(); word++) {
+                long bits = page.get(word) & ~union(others, p, word);
+                while (bits != 0) {
+                    action.accept((p << PAGE_BITS) | (word << 6) | Long.numberOfTrailingZeros(bits));
+                    // Clear the lowest set bit
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove every ID and release the pages.
+     * Should not be called while IDs are still being added.
+     */
+    public void clear() {
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            pages.set(p, null);
+        }
+        size.reset();
+    }
+
+    /**
+     * Combine one word of several sets.
+     * @param sets Sets to combine
+     * @param page Page index
+     * @param word Word index within the page
+     * @return Bitwise OR of the word in every set that has the page
+     */
+    private static long union(TaskIdSet[] sets, int page, int word) {
+        long bits = 0;
+        for (TaskIdSet set : sets) {
+            AtomicLongArray other = set.pages.get(page);
+            if (other != null) {
+                bits |= other.get(word);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Get the page holding a task ID.
+     * @param taskId ID to locate
+     * @param create Whether to allocate the page if it does not exist yet
+     * @return Page, or null if it does not exist and create is false
+     * @throws IllegalArgumentException if taskId is negative
+     */
+    private AtomicLongArray page(int taskId, boolean create) {
+        if (taskId < 0) {
+            throw new IllegalArgumentException("Task ID must not be negative: " + taskId);
+        }
+        int index = taskId >>> PAGE_BITS;
+        AtomicLongArray page = pages.get(index);
+        if (page == null && create) {
+            // Threads racing to create the same page agree on the first one installed
+            pages.compareAndSet(index, null, new AtomicLongArray(PAGE_IDS >>> 6));
+            page = pages.get(index);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,530 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe, append-only journal of queued tasks.
+ * Every task added to a journaled SharedTaskQueue is appended here before it becomes
+ * visible to workers, and acknowledged once ResultsCollector has stored its result.
+ * Reopening the journal after a crash yields the tasks that were never acknowledged.
+ *
+ * Records are written into memory-mapped segment files, so an append is a memory copy.
+ * Durability is provided by group commit: a background thread forces the mapped pages
+ * to disk every sync interval, so one fsync covers every record written since the last
+ * one. A crash can lose at most the records of the last interval; a sync interval of 0
+ * forces after every record instead. Each record carries a CRC32, so a torn write at
+ * the tail of a segment is detected and ignored on replay.
+ *
+ * Record layout: length (int, bytes after the checksum), CRC32 (int), type (byte), then
+ * for ADD records the task in TaskCodec form and for ACK records the task ID (int).
+ * A zero length marks the end of a segment's records.
+ *
+ * An ACK record is written to the current segment, which may be newer than the segment
+ * holding the task's ADD. Sealed segments are therefore deleted oldest first: a segment
+ * goes only once every task added in it is acknowledged and every older segment is gone,
+ * so replay never sees an ADD whose ACK was deleted with a newer segment.
+ * A task that is never acknowledged, such as a dead-lettered one, would then hold every
+ * newer segment on disk, so each roll carries the ADD records still pending in the oldest
+ * sealed segment forward into the new one, as reopening does, and deletes it.
+ */
+public class TaskJournal implements AutoCloseable {
+    public static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    private static final byte ADD = 1;
+    private static final byte ACK = 2;
+    // Length and checksum fields in front of every record
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_PREFIX = "tasks-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    // Share of a fresh segment the pending records of the oldest segment may take when carried forward
+    private static final int CARRY_FORWARD_DIVISOR = 4;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long syncIntervalNanos;
+    private final List<Task> recoveredTasks;
+    private final int highestTaskId;
+    // Segment holding the ADD record of each unacknowledged task
+    private final Map<Integer, Segment> segmentOf;
+    // Sealed segments not yet deleted, oldest first
+    private final ArrayDeque<Segment> sealedSegments;
+    private final CRC32 checksum;
+    private final TaskCodec taskCodec;
+    private final ScheduledExecutorService syncer;
+    private Segment current;
+    private boolean dirty;
+    private boolean closed;
+    private long appendCount;
+    private long syncCount;
+
+    /**
+     * One memory-mapped segment file.
+     */
+    private static class Segment {
+        final int index;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        // Unacknowledged tasks whose ADD record is in this segment
+        int live;
+
+        Segment(int index, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.index = index;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Open the journal in a directory, replaying any segments left by an earlier run.
+     * Unacknowledged tasks are rewritten into a fresh segment and the old segments deleted.
+     * @param directory Directory holding the segment files; created if missing
+     * @param segmentBytes Size of each segment file
+     * @param syncInterval Time between group commits, 0 to sync after every record
+     * @param unit Unit of the sync interval
+     * @throws IOException if the directory or a segment cannot be read or written
+     * @throws IllegalArgumentException if segmentBytes is too small or syncInterval is negative
+     */
+    public TaskJournal(Path directory, int segmentBytes, long syncInterval, TimeUnit unit) throws IOException {
+        if (segmentBytes < 1024) {
+            throw new IllegalArgumentException("Segment size must be at least 1024 bytes: " + segmentBytes);
+        }
+        if (syncInterval < 0) {
+            throw new IllegalArgumentException("Sync interval cannot be negative: " + syncInterval);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalNanos = unit.toNanos(syncInterval);
+        this.segmentOf = new HashMap<>();
+        this.sealedSegments = new ArrayDeque<>();
+        this.checksum = new CRC32();
+        this.taskCodec = new TaskCodec();
+        Files.createDirectories(directory);
+
+        // Replay every existing segment in order
+        List<Path> oldSegments = listSegments();
+        Map<Integer, Task> pending = new LinkedHashMap<>();
+        int highest = 0;
+        for (Path path : oldSegments) {
+            highest = Math.max(highest, replay(path, pending));
+        }
+        this.recoveredTasks = Collections.unmodifiableList(new ArrayList<>(pending.values()));
+        this.highestTaskId = highest;
+
+        // Compact: carry the pending tasks into a new segment, then drop the old files
+        int nextIndex = oldSegments.isEmpty() ? 1 : segmentIndex(oldSegments.get(oldSegments.size() - 1)) + 1;
+        this.current = openSegment(nextIndex);
+        for (Task task : recoveredTasks) {
+            segmentOf.put(task.getTaskId(), writeAdd(task));
+            current.live++;
+        }
+        current.buffer.force();
+        for (Path path : oldSegments) {
+            Files.deleteIfExists(path);
+        }
+        if (!recoveredTasks.isEmpty()) {
+            AsyncLogger.info("[Journal] Recovered {} unacknowledged tasks.", recoveredTasks.size());
+        }
+
+        if (syncIntervalNanos > 0) {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalNanos, syncIntervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    /**
+     * Get the tasks that were journaled but never acknowledged before the journal was reopened.
+     * @return Unmodifiable list of tasks in their original order
+     */
+    public List<Task> getRecoveredTasks() {
+        return recoveredTasks;
+    }
+
+    /**
+     * Get the highest task ID seen while replaying, so new tasks can be numbered after it.
+     * @return Highest replayed task ID, 0 if the journal was empty
+     */
+    public int getHighestTaskId() {
+        return highestTaskId;
+    }
+
+    /**
+     * Append a task. A task that is already pending, such as a recovered task being
+     * queued again or a task returned by an interrupted worker, is not written twice.
+     * @param task Task being queued
+     * @throws IllegalStateException if the journal is closed
+     * @throws UncheckedIOException if a new segment cannot be created
+     */
+    public synchronized void append(Task task) {
+        ensureOpen();
+        if (segmentOf.containsKey(task.getTaskId())) {
+            return;
+        }
+        Segment segment = writeAdd(task);
+        segmentOf.put(task.getTaskId(), segment);
+        segment.live++;
+        afterWrite();
+    }
+
+    /**
+     * Acknowledge that a task's result was stored, so it is not replayed.
+     * Sealed segments whose tasks have all been acknowledged are deleted, oldest first.
+     * A segment stays while an older one still holds a pending task, since its ACK
+     * records may be what keeps that segment's acknowledged tasks from being replayed.
+     * @param taskId ID of the completed task
+     * @throws IllegalStateException if the journal is closed
+     * @throws UncheckedIOException if a new segment cannot be created
+     */
+    public synchronized void acknowledge(int taskId) {
+        ensureOpen();
+        Segment segment = segmentOf.remove(taskId);
+        if (segment == null) {
+            // Never journaled, or already acknowledged
+            return;
+        }
+        ByteBuffer record = reserve(5);
+        record.put(ACK).putInt(taskId);
+        commit(record);
+        afterWrite();
+        segment.live--;
+        deleteAcknowledgedSegments();
+    }
+
+    /**
+     * Force every record written so far to disk.
+     * @throws UncheckedIOException if the sync fails
+     */
+    public void sync() {
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            if (closed || !dirty) {
+                return;
+            }
+            buffer = current.buffer;
+            dirty = false;
+            syncCount++;
+        }
+        // Outside the lock so appends continue while the pages are written out
+        buffer.force();
+    }
+
+    /**
+     * Get the number of tasks appended and not yet acknowledged.
+     * @return Pending task count
+     */
+    public synchronized int getPendingCount() {
+        return segmentOf.size();
+    }
+
+    /**
+     * Get the number of records written.
+     * @return Record count
+     */
+    public synchronized long getAppendCount() {
+        return appendCount;
+    }
+
+    /**
+     * Get the number of group commits performed.
+     * @return Sync count
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Sync and close the journal. If no task is pending, its files are removed.
+     * @throws IOException if the segment cannot be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            current.buffer.force();
+            closed = true;
+            current.channel.close();
+            if (segmentOf.isEmpty()) {
+                Files.deleteIfExists(current.path);
+            }
+        }
+    }
+
+    /**
+     * Write an ADD record for a task.
+     * @param task Task to record
+     * @return Segment the record was written to
+     */
+    private Segment writeAdd(Task task) {
+        ByteBuffer record = reserve(1 + taskCodec.encodedSize(task));
+        record.put(ADD);
+        taskCodec.encode(task, record);
+        commit(record);
+        return current;
+    }
+
+    /**
+     * Make room for a record in the current segment, rolling to a new one if it is full,
+     * and return a view positioned at the record's payload.
+     * @param payloadBytes Size of the record after its header
+     * @return Buffer limited to the payload
+     * @throws IllegalArgumentException if the record can never fit in a segment
+     */
+    private ByteBuffer reserve(int payloadBytes) {
+        int needed = HEADER_BYTES + payloadBytes;
+        // Keep room for the zero length that ends the segment
+        if (needed + 4 > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + needed + " bytes does not fit in a journal segment.");
+        }
+        if (current.buffer.position() + needed + 4 > segmentBytes) {
+            rollSegment();
+        }
+        ByteBuffer record = current.buffer.duplicate();
+        record.position(current.buffer.position() + HEADER_BYTES);
+        record.limit(record.position() + payloadBytes);
+        return record.slice();
+    }
+
+    /**
+     * Fill in the header of a record reserved by {@link #reserve(int)} and advance the segment.
+     * The length is written last, so a record only becomes visible to replay once complete.
+     * @param payload Filled payload view
+     */
+    private void commit(ByteBuffer payload) {
+        payload.flip();
+        checksum.reset();
+        checksum.update(payload.duplicate());
+        MappedByteBuffer buffer = current.buffer;
+        int start = buffer.position();
+        buffer.putInt(start + 4, (int) checksum.getValue());
+        buffer.putInt(start, payload.limit());
+        buffer.position(start + HEADER_BYTES + payload.limit());
+        appendCount++;
+    }
+
+    /**
+     * Mark the journal dirty, or sync right away when group commit is disabled.
+     */
+    private void afterWrite() {
+        dirty = true;
+        if (syncIntervalNanos == 0) {
+            current.buffer.force();
+            dirty = false;
+            syncCount++;
+        }
+    }
+
+    /**
+     * Seal the current segment and start the next one.
+     */
+    private void rollSegment() {
+        Segment sealed = current;
+        sealed.buffer.force();
+        try {
+            sealed.channel.close();
+            current = openSegment(sealed.index + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not roll journal segment", e);
+        }
+        sealedSegments.addLast(sealed);
+        carryForwardOldestSegment();
+        deleteAcknowledgedSegments();
+    }
+
+    /**
+     * Copy the ADD records still pending in the oldest sealed segment into the fresh current
+     * segment, so the oldest one can be deleted. Skipped when they would take more than a
+     * quarter of the new segment, since a large backlog is acknowledged soon anyway.
+     * The copies are forced to disk before the old segment goes.
+     */
+    private void carryForwardOldestSegment() {
+        Segment oldest = sealedSegments.peekFirst();
+        if (oldest == null || oldest.live == 0) {
+            return;
+        }
+        List<ByteBuffer> pending = new ArrayList<>(oldest.live);
+        int pendingBytes = 0;
+        ByteBuffer records = oldest.buffer.duplicate();
+        records.position(0);
+        // Sealed segments were written by this journal, so no record is torn
+        while (records.remaining() >= HEADER_BYTES) {
+            int length = records.getInt();
+            records.getInt();
+            if (length <= 0) {
+                break;
+            }
+            ByteBuffer payload = records.slice();
+            payload.limit(length);
+            records.position(records.position() + length);
+            if (payload.get(0) == ADD && segmentOf.get(payload.getInt(1)) == oldest) {
+                pending.add(payload);
+                pendingBytes += HEADER_BYTES + length;
+            }
+        }
+        if (pendingBytes > segmentBytes / CARRY_FORWARD_DIVISOR) {
+            return;
+        }
+        for (ByteBuffer payload : pending) {
+            ByteBuffer record = reserve(payload.remaining());
+            record.put(payload);
+            commit(record);
+            segmentOf.put(payload.getInt(1), current);
+            current.live++;
+        }
+        current.buffer.force();
+        oldest.live = 0;
+    }
+
+    /**
+     * Delete sealed segments from the oldest up to the first one still holding a pending task.
+     */
+    private void deleteAcknowledgedSegments() {
+        while (!sealedSegments.isEmpty() && sealedSegments.peekFirst().live == 0) {
+            deleteSegment(sealedSegments.pollFirst());
+        }
+    }
+
+    /**
+     * Create and map a new, zero-filled segment file.
+     * @param index Segment number
+     * @return Open segment
+     * @throws IOException if the file cannot be created or mapped
+     */
+    private Segment openSegment(int index) throws IOException {
+        Path path = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        return new Segment(index, path, channel, buffer);
+    }
+
+    /**
+     * Delete a segment file whose tasks have all been acknowledged.
+     * @param segment Sealed segment
+     */
+    private void deleteSegment(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            AsyncLogger.warn("[Journal] Could not delete " + segment.path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replay one segment file into the pending map.
+     * Stops at the end marker or at the first record whose checksum does not match.
+     * @param path Segment file
+     * @param pending Unacknowledged tasks by ID, updated in place
+     * @return Highest task ID seen in the segment
+     * @throws IOException if the file cannot be read
+     */
+    private int replay(Path path, Map<Integer, Task> pending) throws IOException {
+        int highest = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int length = buffer.getInt();
+                int expected = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice();
+                payload.limit(length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != expected) {
+                    AsyncLogger.warn("[Journal] Ignoring torn record at the end of " + path.getFileName());
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+                byte type = payload.get();
+                if (type == ADD) {
+                    Task task = taskCodec.decode(payload);
+                    highest = Math.max(highest, task.getTaskId());
+                    pending.putIfAbsent(task.getTaskId(), task);
+                } else if (type == ACK) {
+                    int taskId = payload.getInt();
+                    highest = Math.max(highest, taskId);
+                    pending.remove(taskId);
+                }
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * List the segment files in the journal directory, oldest first.
+     * @return Segment paths sorted by segment number
+     * @throws IOException if the directory cannot be listed
+     */
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort((a, b) -> Integer.compare(segmentIndex(a), segmentIndex(b)));
+        return segments;
+    }
+
+    /**
+     * Parse the segment number from a segment file name.
+     * @param path Segment file
+     * @return Segment number
+     */
+    private static int segmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Run a group commit from the background thread, logging instead of throwing.
+     */
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            AsyncLogger.error("[Journal] Group commit failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reject writes after close().
+     * @throws IllegalStateException if the journal is closed
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordering used by a priority-scheduling SharedTaskQueue.
+ * Tasks are ordered by priority, then by enqueue order within a priority level.
+ * With aging enabled, each priority level is worth a fixed amount of waiting time:
+ * a task is ordered as if it had been enqueued (urgency * agingInterval) earlier,
+ * so a less urgent task can be overtaken by newer urgent work for a bounded time only.
+ */
+public class TaskOrdering implements Comparator<Task> {
+
+    /**
+     * Which end of the priority range is considered most urgent.
+     */
+    public enum Direction {
+        HIGHEST_FIRST,
+        LOWEST_FIRST
+    }
+
+    private final Direction direction;
+    private final long agingNanos;
+
+    /**
+     * Constructor for strict priority ordering without aging.
+     * @param direction Which priority values are served first
+     */
+    public TaskOrdering(Direction direction) {
+        this(direction, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor for priority ordering with aging.
+     * @param direction Which priority values are served first
+     * @param agingInterval Waiting time that counts as one priority level (0 disables aging)
+     * @param unit Unit of the aging interval
+     * @throws IllegalArgumentException if direction is null or agingInterval is negative
+     */
+    public TaskOrdering(Direction direction, long agingInterval, TimeUnit unit) {
+        if (direction == null) {
+            throw new IllegalArgumentException("Direction cannot be null.");
+        }
+        if (agingInterval < 0) {
+            throw new IllegalArgumentException("Aging interval cannot be negative: " + agingInterval);
+        }
+        this.direction = direction;
+        this.agingNanos = unit.toNanos(agingInterval);
+    }
+
+    /**
+     * Get the urgency of a task, where a larger value is served first.
+     * @param task Task to rank
+     * @return Urgency of the task
+     */
+    public int urgency(Task task) {
+        return direction == Direction.HIGHEST_FIRST ? task.getPriority() : -task.getPriority();
+    }
+
+    /**
+     * Compare two tasks; the task that should be dequeued first sorts lower.
+     * @param a First task
+     * @param b Second task
+     * @return Negative if a goes first, positive if b goes first
+     */
+    @Override
+    public int compare(Task a, Task b) {
+        if (agingNanos > 0) {
+            long keyA = a.getEnqueueTimeNanos() - urgency(a) * agingNanos;
+            long keyB = b.getEnqueueTimeNanos() - urgency(b) * agingNanos;
+            // Subtract rather than Long.compare, nanoTime values may wrap
+            long diff = keyA - keyB;
+            if (diff != 0) {
+                return diff < 0 ? -1 : 1;
+            }
+        } else {
+            int byUrgency = Integer.compare(urgency(b), urgency(a));
+            if (byUrgency != 0) {
+                return byUrgency;
+            }
+        }
+        return Long.compare(a.getSequence(), b.getSequence());
+    }
+
+    /**
+     * Get the priority direction.
+     * @return Direction
+     */
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Get the aging interval.
+     * @return Aging interval in nanoseconds, 0 if aging is disabled
+     */
+    public long getAgingNanos() {
+        return agingNanos;
+    }
+}
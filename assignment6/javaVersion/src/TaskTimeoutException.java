@@ -0,0 +1,25 @@
+/**
+ * Thrown when a task is cancelled because it was still running at its deadline.
+ */
+public class TaskTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int taskId;
+
+    /**
+     * Constructor for the exception.
+     * @param taskId ID of the cancelled task
+     */
+    public TaskTimeoutException(int taskId) {
+        super("Task " + taskId + " was cancelled at its deadline.");
+        this.taskId = taskId;
+    }
+
+    /**
+     * Get the ID of the cancelled task.
+     * @return Task ID
+     */
+    public int getTaskId() {
+        return taskId;
+    }
+}
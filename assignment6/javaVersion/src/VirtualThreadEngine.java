@@ -0,0 +1,148 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Engine that runs every task on its own virtual thread, for I/O-bound work.
+ * A blocked task parks its virtual thread instead of an OS thread, so the number of
+ * tasks in flight is bounded only by the configured concurrency limit.
+ * The limit is enforced with a pool of WorkerThread "lanes": a task must borrow a lane
+ * before it is started, and the lane's id is reported as the result's worker id.
+ * On runtimes without virtual threads (before Java 21) it falls back to one platform
+ * thread per task with the same limit.
+ */
+public class VirtualThreadEngine {
+    // How long the feeder blocks on the source queue before re-checking it
+    private static final long POLL_TIMEOUT_MS = 1000;
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final BlockingQueue<WorkerThread> lanes;
+    private final int maxConcurrency;
+    // Highest lane id handed out; lanes are borrowed in id order, so also the number used
+    private volatile int lanesUsed;
+
+    /**
+     * Constructor for the engine.
+     * @param maxConcurrency Maximum number of tasks in flight at once
+     * @param taskQueue Queue the tasks are drawn from
+     * @param resultsCollector Shared collector to store results in
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public VirtualThreadEngine(int maxConcurrency, SharedTaskQueue taskQueue, ResultsCollector resultsCollector) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive: " + maxConcurrency);
+        }
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+        this.virtual = virtualExecutor != null;
+        this.executor = virtual ? virtualExecutor : Executors.newCachedThreadPool();
+        this.maxConcurrency = maxConcurrency;
+        this.lanes = new ArrayBlockingQueue<>(maxConcurrency);
+        for (int i = 0; i < maxConcurrency; i++) {
+            lanes.add(new WorkerThread(i + 1, taskQueue, resultsCollector));
+        }
+    }
+
+    /**
+     * Apply the same settings, e.g. a shared result cache or retry scheduler, to every lane.
+     * Should be called before run().
+     * @param setup Action run once per lane
+     */
+    public void configureWorkers(Consumer<? super WorkerThread> setup) {
+        for (WorkerThread lane : lanes) {
+            setup.accept(lane);
+        }
+    }
+
+    /**
+     * Drain the queue until it is closed and empty, starting one thread per task,
+     * then wait for every task to finish. The engine cannot be reused afterwards.
+     * @param taskQueue Queue to drain
+     * @throws InterruptedException if interrupted while waiting for tasks or lanes
+     */
+    public void run(SharedTaskQueue taskQueue) throws InterruptedException {
+        try {
+            while (true) {
+                Task task = taskQueue.getTask(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    // Tasks still in flight may fail and be handed back for a retry
+                    if (taskQueue.isClosed() && lanes.size() == maxConcurrency) {
+                        break;
+                    }
+                    continue;
+                }
+                // Blocks while maxConcurrency tasks are already in flight
+                WorkerThread lane = lanes.take();
+                // Only this feeder thread writes the field
+                if (lane.getWorkerId() > lanesUsed) {
+                    lanesUsed = lane.getWorkerId();
+                }
+                executor.execute(() -> runOnLane(lane, task));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Check whether tasks run on virtual threads or on the platform-thread fallback.
+     * @return true if virtual threads are in use
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Get the maximum number of tasks in flight.
+     * @return Concurrency limit
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Get the number of lanes that ran at least one task attempt. A returned lane goes to the
+     * back of the pool, so lanes are first used in id order and the used ones are 1..n.
+     * Retried tasks take a lane again, so this can exceed the number of distinct tasks.
+     * @return Lanes used so far
+     */
+    public int getLanesUsed() {
+        return lanesUsed;
+    }
+
+    /**
+     * Process a task with the given lane and hand the lane back afterwards.
+     * @param lane Worker logic borrowed for this task
+     * @param task Task to process
+     */
+    private void runOnLane(WorkerThread lane, Task task) {
+        try {
+            lane.handleTask(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            AsyncLogger.warn("[Worker " + lane.getWorkerId() + "] Interrupted while processing task " + task.getTaskId() + ": " + e.getMessage());
+        } catch (Exception e) {
+            AsyncLogger.error("[Worker " + lane.getWorkerId() + "] Error processing task " + task.getTaskId() + ": " + e.getMessage(), e);
+        } finally {
+            lanes.offer(lane);
+        }
+    }
+
+    /**
+     * Look up Executors.newVirtualThreadPerTaskExecutor() so the code still compiles on older JDKs.
+     * @return Virtual-thread executor, or null if the runtime does not support virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
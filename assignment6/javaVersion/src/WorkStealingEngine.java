@@ -0,0 +1,206 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Work-stealing alternative to the fixed worker thread pool.
+ * Tasks are handed to a ForkJoinPool in batches; each batch is split recursively so the
+ * pieces land in the per-worker deques, and idle workers steal from busy ones instead of
+ * all contending on one central queue. Each pool thread runs the unchanged WorkerThread
+ * processing logic through {@link WorkerThread#handleTask(Task)}.
+ * The feeder only takes as many tasks off the source queue as the pool can have in flight,
+ * so the rest keep waiting in the source queue and stay subject to its rules instead of
+ * piling up in the pool.
+ */
+public class WorkStealingEngine {
+    // How long the feeder blocks on the source queue before re-checking it
+    private static final long POLL_TIMEOUT_MS = 1000;
+    // Tasks pulled from the source queue before a batch is submitted to the pool
+    private static final int BATCHES_PER_WORKER = 4;
+
+    private final ForkJoinPool pool;
+    private final WorkerThread[] workers;
+    private final int batchSize;
+    // One permit per task taken off the source queue and not yet finished
+    private final Semaphore inFlight;
+
+    /**
+     * Constructor sizing the pool to the available cores.
+     * @param taskQueue Queue the tasks are drawn from
+     * @param resultsCollector Shared collector to store results in
+     */
+    public WorkStealingEngine(SharedTaskQueue taskQueue, ResultsCollector resultsCollector) {
+        this(Runtime.getRuntime().availableProcessors(), taskQueue, resultsCollector);
+    }
+
+    /**
+     * Constructor with an explicit parallelism level.
+     * @param parallelism Number of pool worker threads
+     * @param taskQueue Queue the tasks are drawn from
+     * @param resultsCollector Shared collector to store results in
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public WorkStealingEngine(int parallelism, SharedTaskQueue taskQueue, ResultsCollector resultsCollector) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        // asyncMode gives FIFO ordering for forked tasks that are never joined
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.workers = new WorkerThread[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new WorkerThread(i + 1, taskQueue, resultsCollector);
+        }
+        this.batchSize = parallelism * BATCHES_PER_WORKER;
+        this.inFlight = new Semaphore(batchSize);
+    }
+
+    /**
+     * Apply the same settings, e.g. a shared result cache or retry scheduler, to every worker.
+     * @param setup Action run once per worker
+     */
+    public void configureWorkers(Consumer<? super WorkerThread> setup) {
+        for (WorkerThread worker : workers) {
+            setup.accept(worker);
+        }
+    }
+
+    /**
+     * Process a list of tasks and wait for all of them to complete.
+     * @param tasks Tasks to process
+     */
+    public void process(List<Task> tasks) {
+        if (!tasks.isEmpty()) {
+            pool.invoke(new TaskRange(tasks, 0, tasks.size(), false));
+        }
+    }
+
+    /**
+     * Drain the queue until it is closed and empty, then wait for all submitted work.
+     * The calling thread is the only consumer of the queue, so workers never contend on it.
+     * At most one batch of tasks is in flight at a time; the feeder waits for a task to finish
+     * before it takes another one off the queue.
+     * @param taskQueue Queue to drain
+     * @throws InterruptedException if interrupted while waiting for tasks
+     */
+    public void run(SharedTaskQueue taskQueue) throws InterruptedException {
+        List<Task> batch = new ArrayList<>(batchSize);
+        while (true) {
+            if (!batch.isEmpty() && inFlight.availablePermits() == 0) {
+                // The batch holds the last permits, so it has to run before anything else is taken
+                submit(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+            inFlight.acquire();
+            Task task = taskQueue.getTask(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (task != null) {
+                batch.add(task);
+            } else {
+                inFlight.release();
+            }
+            boolean done = task == null && taskQueue.isClosed();
+            // Submit on a full batch, or whenever the queue runs dry so workers are not left idle
+            if (!batch.isEmpty() && (done || batch.size() >= batchSize || taskQueue.isEmpty())) {
+                submit(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+            if (done) {
+                // Every permit is back once the submitted work has finished
+                inFlight.acquire(batchSize);
+                inFlight.release(batchSize);
+                // Tasks that failed in that work may have been handed back for a retry
+                if (taskQueue.isClosed() && taskQueue.isEmpty()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Shut down the pool and wait for running work to finish.
+     * @param timeout Maximum time to wait
+     * @param unit Unit of the timeout
+     * @return true if the pool terminated, false on timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        pool.shutdown();
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Get the number of pool worker threads.
+     * @return Parallelism level
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Hand a batch of tasks taken off the source queue to the pool.
+     * @param batch Tasks holding one in-flight permit each
+     */
+    private void submit(List<Task> batch) {
+        pool.execute(new TaskRange(batch, 0, batch.size(), true));
+    }
+
+    /**
+     * Pick the WorkerThread logic bound to the current pool thread.
+     * @return Worker for the calling thread
+     */
+    private WorkerThread currentWorker() {
+        Thread thread = Thread.currentThread();
+        int index = 0;
+        if (thread instanceof ForkJoinWorkerThread) {
+            index = ((ForkJoinWorkerThread) thread).getPoolIndex();
+        }
+        return workers[index % workers.length];
+    }
+
+    /**
+     * Slice of a task list that splits in half until it reaches a single task.
+     */
+    private class TaskRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Task> tasks;
+        private final int from;
+        private final int to;
+        // Whether each task holds an in-flight permit to hand back when it finishes
+        private final boolean permitted;
+
+        TaskRange(List<Task> tasks, int from, int to, boolean permitted) {
+            this.tasks = tasks;
+            this.from = from;
+            this.to = to;
+            this.permitted = permitted;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TaskRange(tasks, from, mid, permitted), new TaskRange(tasks, mid, to, permitted));
+                return;
+            }
+            Task task = tasks.get(from);
+            WorkerThread worker = currentWorker();
+            try {
+                worker.handleTask(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                AsyncLogger.warn("[Worker " + worker.getWorkerId() + "] Interrupted while processing task " + task.getTaskId() + ": " + e.getMessage());
+            } catch (Exception e) {
+                AsyncLogger.error("[Worker " + worker.getWorkerId() + "] Error processing task " + task.getTaskId() + ": " + e.getMessage(), e);
+            } finally {
+                if (permitted) {
+                    inFlight.release();
+                }
+            }
+        }
+    }
+}
@@ -1,11 +1,43 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
 /**
  * Worker thread that processes tasks from the shared queue.
  * Retrieves tasks, processes them with simulated delay, and stores results.
+ * In batch mode the worker takes up to batchSize tasks per queue access and
+ * stores their results with a single call to the collector.
+ * A worker owned by an elastic pool can also be given an idle timeout, after which
+ * it asks the pool for permission to exit while the queue is still open.
+ * With a result cache attached, tasks whose data was already processed reuse the
+ * cached output instead of being processed again.
+ * A task with a deadline is cancelled by the DeadlineTimer if it is still running
+ * then; it is reported to the collector as timed out instead of being re-queued.
+ * With a RetryScheduler attached, a task that fails or is interrupted is handed to it
+ * to be retried after a backoff or dead-lettered, instead of being dropped or put
+ * straight back in the queue.
  */
 public class WorkerThread implements Runnable {
+    // How long a worker blocks on the queue before re-checking its state
+    private static final long POLL_TIMEOUT_MS = 1000;
+    // Default simulated processing delay range
+    private static final long DEFAULT_MIN_PROCESSING_MS = 500;
+    private static final long DEFAULT_MAX_PROCESSING_MS = 2000;
+
     private int workerId;
     private SharedTaskQueue taskQueue;
     private ResultsCollector resultsCollector;
+    private int batchSize;
+    private volatile long minProcessingNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MIN_PROCESSING_MS);
+    private volatile long maxProcessingNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_PROCESSING_MS);
+    private volatile long idleTimeoutNanos;
+    private volatile BooleanSupplier retireCheck;
+    private volatile MemoizingCache<String, String> resultCache;
+    private volatile RetryScheduler retryScheduler;
+    private volatile double failureRate;
 
     /**
      * Constructor for worker thread.
@@ -14,9 +46,25 @@ public class WorkerThread implements Runnable {
      * @param resultsCollector Shared collector to store results in
      */
     public WorkerThread(int workerId, SharedTaskQueue taskQueue, ResultsCollector resultsCollector) {
+        this(workerId, taskQueue, resultsCollector, 1);
+    }
+
+    /**
+     * Constructor for a worker thread that pulls tasks in batches.
+     * @param workerId Unique identifier for this worker
+     * @param taskQueue Shared queue to retrieve tasks from
+     * @param resultsCollector Shared collector to store results in
+     * @param batchSize Maximum number of tasks taken per queue access (1 disables batching)
+     * @throws IllegalArgumentException if batchSize is not positive
+     */
+    public WorkerThread(int workerId, SharedTaskQueue taskQueue, ResultsCollector resultsCollector, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
         this.workerId = workerId;
         this.taskQueue = taskQueue;
         this.resultsCollector = resultsCollector;
+        this.batchSize = batchSize;
     }
 
     /**
@@ -25,65 +73,248 @@ public class WorkerThread implements Runnable {
      */
     @Override
     public void run() {
-        System.out.println("[Worker " + workerId + "] Thread started.");
+        AsyncLogger.info("[Worker {}] Thread started.", workerId);
         
         try {
+            if (batchSize > 1) {
+                processBatches();
+                return;
+            }
+            long idleSince = System.nanoTime();
             while (true) {
-                // Retrieve task from queue
-                Task task = taskQueue.getTask();
+                // Block until a task arrives, the queue is closed, or the poll times out
+                Task task;
+                try {
+                    task = taskQueue.getTask(pollTimeoutNanos(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    AsyncLogger.warn("[Worker " + workerId + "] Interrupted while waiting for tasks: " + e.getMessage());
+                    break;
+                }
                 
                 // If no task available and queue is closed, exit
                 if (task == null) {
-                    if (taskQueue.isClosed() && taskQueue.isEmpty()) {
-                        System.out.println("[Worker " + workerId + "] No more tasks available. Queue is closed and empty. Exiting.");
+                    if (taskQueue.isClosed()) {
+                        AsyncLogger.info("[Worker {}] No more tasks available. Queue is closed and empty. Exiting.", workerId);
                         break;
                     }
-                    // Queue is empty but not closed, wait a bit and retry
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        System.err.println("[Worker " + workerId + "] Interrupted while waiting for tasks: " + e.getMessage());
+                    if (shouldRetire(idleSince)) {
                         break;
                     }
+                    // Timed out while the producer is still running, wait again
                     continue;
                 }
 
                 // Process the task
                 try {
-                    System.out.println("[Worker " + workerId + "] Processing task: " + task.getTaskId());
-                    String processedData = processTask(task);
-                    
-                    // Create result
-                    long timestamp = System.currentTimeMillis();
-                    Result result = new Result(task.getTaskId(), processedData, workerId, timestamp);
-                    
-                    // Store result
-                    resultsCollector.addResult(result);
-                    
-                    System.out.println("[Worker " + workerId + "] Completed task: " + task.getTaskId());
-                    
+                    handleTask(task);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
-                    System.err.println("[Worker " + workerId + "] Interrupted while processing task " + task.getTaskId() + ": " + e.getMessage());
+                    AsyncLogger.warn("[Worker " + workerId + "] Interrupted while processing task " + task.getTaskId() + ": " + e.getMessage());
                     // Put task back in queue if interrupted during processing
-                    try {
-                        taskQueue.addTask(task);
-                    } catch (IllegalStateException ex) {
-                        System.err.println("[Worker " + workerId + "] Could not return task to queue: " + ex.getMessage());
+                    RetryScheduler retries = retryScheduler;
+                    if (retries != null) {
+                        retries.retry(task, e);
+                        break;
                     }
+                    // returnTasks never blocks, so the restored interrupt flag cannot make it fail
+                    taskQueue.returnTasks(Collections.singletonList(task));
                     break;
                 } catch (Exception e) {
-                    System.err.println("[Worker " + workerId + "] Error processing task " + task.getTaskId() + ": " + e.getMessage());
-                    e.printStackTrace();
+                    AsyncLogger.error("[Worker " + workerId + "] Error processing task " + task.getTaskId() + ": " + e.getMessage(), e);
                 }
+                idleSince = System.nanoTime();
             }
         } catch (Exception e) {
-            System.err.println("[Worker " + workerId + "] Fatal error in worker thread: " + e.getMessage());
-            e.printStackTrace();
+            AsyncLogger.error("[Worker " + workerId + "] Fatal error in worker thread: " + e.getMessage(), e);
+        } finally {
+            AsyncLogger.info("[Worker {}] Thread completed.", workerId);
+        }
+    }
+
+    /**
+     * Process a single task and store its result.
+     * Shared by the thread loop above and by alternative engines that schedule tasks themselves.
+     * @param task Task to process
+     * @throws InterruptedException if thread is interrupted during processing
+     */
+    public void handleTask(Task task) throws InterruptedException {
+        ProcessingMetrics metrics = ProcessingMetrics.global();
+        metrics.recordStart(task, System.nanoTime());
+        Result result;
+        try {
+            result = createResult(task);
+        } catch (TaskTimeoutException e) {
+            reportTimeout(task);
+            return;
+        } catch (RuntimeException e) {
+            handleFailure(task, e);
+            return;
+        }
+        
+        // Store result
+        resultsCollector.addResult(result);
+        long now = System.nanoTime();
+        metrics.recordCompletion(task, workerId, now);
+        reportIfLate(task, now);
+        
+        AsyncLogger.debug("[Worker {}] Completed task: {}", workerId, task.getTaskId());
+    }
+
+    /**
+     * Batch loop: drain up to batchSize tasks at once, process them, then store all results together.
+     * If interrupted mid-batch, results finished so far are stored and the rest of the batch is re-queued.
+     */
+    private void processBatches() {
+        ProcessingMetrics metrics = ProcessingMetrics.global();
+        List<Task> batch = new ArrayList<>(batchSize);
+        List<Task> completed = new ArrayList<>(batchSize);
+        List<Result> results = new ArrayList<>(batchSize);
+        long idleSince = System.nanoTime();
+        while (true) {
+            batch.clear();
+            int drained;
+            try {
+                drained = taskQueue.drainTo(batch, batchSize, pollTimeoutNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                AsyncLogger.warn("[Worker " + workerId + "] Interrupted while waiting for tasks: " + e.getMessage());
+                return;
+            }
+
+            if (drained == 0) {
+                if (taskQueue.isClosed()) {
+                    AsyncLogger.info("[Worker {}] No more tasks available. Queue is closed and empty. Exiting.", workerId);
+                    return;
+                }
+                if (shouldRetire(idleSince)) {
+                    return;
+                }
+                continue;
+            }
+
+            completed.clear();
+            results.clear();
+            int index = 0;
+            try {
+                for (; index < batch.size(); index++) {
+                    Task task = batch.get(index);
+                    metrics.recordStart(task, System.nanoTime());
+                    try {
+                        results.add(createResult(task));
+                        completed.add(task);
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (TaskTimeoutException e) {
+                        reportTimeout(task);
+                    } catch (Exception e) {
+                        handleFailure(task, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                AsyncLogger.warn("[Worker " + workerId + "] Interrupted while processing task " + batch.get(index).getTaskId() + ": " + e.getMessage());
+                storeResults(completed, results);
+                RetryScheduler retries = retryScheduler;
+                if (retries != null) {
+                    // The interrupted task counts as a failed attempt; the rest were never started
+                    retries.retry(batch.get(index), e);
+                    index++;
+                }
+                if (index == batch.size()) {
+                    return;
+                }
+                // Put the unprocessed part of the batch back in the queue
+                taskQueue.returnTasks(batch.subList(index, batch.size()));
+                return;
+            }
+
+            storeResults(completed, results);
+            AsyncLogger.debug("[Worker {}] Completed batch of {} tasks", workerId, results.size());
+            idleSince = System.nanoTime();
+        }
+    }
+
+    /**
+     * Store a batch's results with one collector call and record their completion.
+     * @param completed Tasks that produced the results, in the same order
+     * @param results Results to store
+     */
+    private void storeResults(List<Task> completed, List<Result> results) {
+        resultsCollector.addResults(results);
+        long now = System.nanoTime();
+        ProcessingMetrics metrics = ProcessingMetrics.global();
+        for (Task task : completed) {
+            metrics.recordCompletion(task, workerId, now);
+            reportIfLate(task, now);
+        }
+    }
+
+    /**
+     * Hand a failed task to the retry scheduler, or log and drop it if there is none.
+     * @param task Task that failed
+     * @param e Exception it failed with
+     */
+    private void handleFailure(Task task, Exception e) {
+        RetryScheduler retries = retryScheduler;
+        if (retries == null) {
+            AsyncLogger.error("[Worker " + workerId + "] Error processing task " + task.getTaskId() + ": " + e.getMessage(), e);
+            return;
+        }
+        retries.retry(task, e);
+    }
+
+    /**
+     * Report a task that was cancelled at its deadline.
+     * @param task Cancelled task
+     */
+    private void reportTimeout(Task task) {
+        AsyncLogger.warn("[Worker " + workerId + "] Task " + task.getTaskId() + " cancelled at its deadline.");
+        resultsCollector.recordTimedOut(task);
+    }
+
+    /**
+     * Report a task whose result was stored after its deadline.
+     * @param task Completed task
+     * @param completedNanos System.nanoTime() when the result was stored
+     */
+    private void reportIfLate(Task task, long completedNanos) {
+        if (task.isExpired(completedNanos)) {
+            resultsCollector.recordLate(task);
+        }
+    }
+
+    /**
+     * Process a task and wrap the output in a result stamped with this worker's ID.
+     * The result is returned rather than stored, for callers such as pipeline stages.
+     * @param task Task to process
+     * @return Result for the task
+     * @throws InterruptedException if thread is interrupted during processing
+     * @throws TaskTimeoutException if the task was cancelled at its deadline
+     */
+    public Result createResult(Task task) throws InterruptedException {
+        AsyncLogger.debug("[Worker {}] Processing task: {}", workerId, task.getTaskId());
+        long start = System.nanoTime();
+        DeadlineTimer.Guard guard = DeadlineTimer.global().arm(task);
+        String processedData;
+        try {
+            processedData = processTask(task);
+        } catch (InterruptedException e) {
+            if (guard != null && guard.disarm()) {
+                throw new TaskTimeoutException(task.getTaskId());
+            }
+            throw e;
         } finally {
-            System.out.println("[Worker " + workerId + "] Thread completed.");
+            // A deadline that fires after the work is done is ignored; the result is only late
+            if (guard != null) {
+                guard.disarm();
+            }
         }
+        ProcessingMetrics.global().recordProcessing(System.nanoTime() - start);
+        
+        // Create result
+        long timestamp = System.currentTimeMillis();
+        return new Result(task.getTaskId(), processedData, workerId, timestamp);
     }
 
     /**
@@ -93,16 +324,130 @@ public class WorkerThread implements Runnable {
      * @throws InterruptedException if thread is interrupted during processing
      */
     private String processTask(Task task) throws InterruptedException {
-        // Simulate processing delay (random between 500ms and 2000ms)
-        int processingTime = 500 + (int)(Math.random() * 1500);
-        Thread.sleep(processingTime);
+        MemoizingCache<String, String> cache = resultCache;
+        String processedData = cache != null ? cache.get(task.getData(), this::transform) : transform(task.getData());
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("Simulated failure in task " + task.getTaskId());
+        }
+        return processedData;
+    }
+
+    /**
+     * Transform task data, simulating computational work.
+     * @param data Task data
+     * @return Processed data string
+     * @throws InterruptedException if thread is interrupted during processing
+     */
+    private String transform(String data) throws InterruptedException {
+        // Simulate processing delay (random between 500ms and 2000ms by default)
+        long processingNanos = minProcessingNanos;
+        if (maxProcessingNanos > minProcessingNanos) {
+            processingNanos += ThreadLocalRandom.current().nextLong(maxProcessingNanos - minProcessingNanos);
+        }
+        if (processingNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(processingNanos);
+        }
+        long processingTime = TimeUnit.NANOSECONDS.toMillis(processingNanos);
         
         // Simulate data processing (e.g., transform the data)
-        String processedData = "[PROCESSED] " + task.getData().toUpperCase() + " (processed in " + processingTime + "ms)";
+        String processedData = "[PROCESSED] " + data.toUpperCase() + " (processed in " + processingTime + "ms)";
         
         return processedData;
     }
 
+    /**
+     * Set the range of the simulated processing delay, e.g. to model cheaper tasks in benchmarks.
+     * @param min Minimum delay per task
+     * @param max Maximum delay per task (exclusive), equal to min for a fixed delay
+     * @param unit Unit of min and max
+     * @throws IllegalArgumentException if min is negative or max is less than min
+     */
+    public void setProcessingTime(long min, long max, TimeUnit unit) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid processing time range: " + min + ".." + max);
+        }
+        this.minProcessingNanos = unit.toNanos(min);
+        this.maxProcessingNanos = unit.toNanos(max);
+    }
+
+    /**
+     * Share processed outputs between tasks with the same data through a cache.
+     * The cache is keyed by Task.getData() and may be shared by many workers.
+     * @param cache Cache to use, or null to process every task
+     */
+    public void setResultCache(MemoizingCache<String, String> cache) {
+        this.resultCache = cache;
+    }
+
+    /**
+     * Retry failed and interrupted tasks through a scheduler instead of dropping them.
+     * @param retries Scheduler to hand failed tasks to, or null to log and drop them
+     */
+    public void setRetryScheduler(RetryScheduler retries) {
+        this.retryScheduler = retries;
+    }
+
+    /**
+     * Make a share of tasks fail after processing, e.g. to exercise retries.
+     * @param rate Probability that a task fails, from 0 to 1
+     * @throws IllegalArgumentException if rate is outside 0..1
+     */
+    public void setFailureRate(double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Failure rate must be between 0 and 1: " + rate);
+        }
+        this.failureRate = rate;
+    }
+
+    /**
+     * Let the worker exit after it has been idle for a while, if the owner agrees.
+     * The check is asked once each time the worker has been idle for the timeout, and
+     * the worker exits only when it returns true; it should claim the retirement
+     * atomically, e.g. so a pool never drops below its minimum size.
+     * @param timeout Idle time before the worker asks to retire, 0 to never retire
+     * @param unit Unit of the timeout
+     * @param canRetire Decides whether the worker may exit
+     * @throws IllegalArgumentException if timeout is negative or canRetire is null
+     */
+    public void setIdleTimeout(long timeout, TimeUnit unit, BooleanSupplier canRetire) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Idle timeout cannot be negative: " + timeout);
+        }
+        if (canRetire == null) {
+            throw new IllegalArgumentException("Retirement check cannot be null.");
+        }
+        this.retireCheck = canRetire;
+        this.idleTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Get how long to block on the queue: the regular poll interval, or less if the
+     * idle timeout is shorter so retirement is not delayed.
+     * @return Poll timeout in nanoseconds
+     */
+    private long pollTimeoutNanos() {
+        long poll = TimeUnit.MILLISECONDS.toNanos(POLL_TIMEOUT_MS);
+        long idle = idleTimeoutNanos;
+        return idle > 0 ? Math.min(poll, idle) : poll;
+    }
+
+    /**
+     * Check whether the worker has been idle past its timeout and may exit.
+     * @param idleSince System.nanoTime() when the worker last finished work
+     * @return true if the worker should exit now
+     */
+    private boolean shouldRetire(long idleSince) {
+        long idle = idleTimeoutNanos;
+        if (idle <= 0 || System.nanoTime() - idleSince < idle) {
+            return false;
+        }
+        if (!retireCheck.getAsBoolean()) {
+            return false;
+        }
+        AsyncLogger.info("[Worker {}] Idle past keep-alive. Retiring.", workerId);
+        return true;
+    }
+
     /**
      * Get the worker ID.
      * @return Worker ID
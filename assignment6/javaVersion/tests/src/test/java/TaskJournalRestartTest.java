@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Restart tests for TaskJournal: a journal reopened without close() must recover
+ * exactly the tasks that were appended and never acknowledged.
+ */
+class TaskJournalRestartTest {
+    // Small segments so a few hundred records span many segment files
+    private static final int SEGMENT_BYTES = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversOnlyUnacknowledgedTasks() throws IOException {
+        TaskJournal journal = open();
+        for (int id = 1; id <= 10; id++) {
+            journal.append(new Task(id, "task-" + id));
+        }
+        for (int id = 1; id <= 10; id += 2) {
+            journal.acknowledge(id);
+        }
+
+        // Reopen without close(), as after a crash
+        try (TaskJournal reopened = open()) {
+            assertEquals(List.of(2, 4, 6, 8, 10), taskIds(reopened.getRecoveredTasks()));
+            assertEquals(10, reopened.getHighestTaskId());
+        }
+    }
+
+    @Test
+    void acknowledgementsInNewerSegmentsSurviveRestart() throws IOException {
+        // Task 1 stays pending in the first segment while the ACKs of tasks 2..38, written
+        // to later segments, are the only record that those tasks completed
+        TaskJournal journal = open();
+        for (int id = 1; id <= 38; id++) {
+            journal.append(new Task(id, "task-" + id));
+        }
+        for (int id = 2; id <= 38; id++) {
+            journal.acknowledge(id);
+        }
+        for (int id = 39; id <= 300; id++) {
+            journal.append(new Task(id, "task-" + id));
+            journal.acknowledge(id);
+        }
+        assertEquals(1, journal.getPendingCount());
+
+        try (TaskJournal reopened = open()) {
+            assertEquals(List.of(1), taskIds(reopened.getRecoveredTasks()));
+            assertEquals(1, reopened.getPendingCount());
+
+            // The compacted journal must replay the same way after a second crash
+            reopened.acknowledge(1);
+        }
+        try (TaskJournal reopened = open()) {
+            assertEquals(List.of(), taskIds(reopened.getRecoveredTasks()));
+        }
+    }
+
+    @Test
+    void neverAcknowledgedTaskDoesNotKeepNewerSegments() throws IOException {
+        // Task 1 is never acknowledged, like a dead-lettered task, while thousands of others
+        // pass through; its ADD record is carried forward instead of pinning every segment
+        TaskJournal journal = open();
+        journal.append(new Task(1, "task-1"));
+        for (int id = 2; id <= 5000; id++) {
+            journal.append(new Task(id, "task-" + id));
+            journal.acknowledge(id);
+        }
+        assertTrue(segmentFiles() <= 3, "segment files left: " + segmentFiles());
+
+        try (TaskJournal reopened = open()) {
+            assertEquals(List.of(1), taskIds(reopened.getRecoveredTasks()));
+            assertEquals(5000, reopened.getHighestTaskId());
+        }
+    }
+
+    private TaskJournal open() throws IOException {
+        return new TaskJournal(directory, SEGMENT_BYTES, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static List<Integer> taskIds(List<Task> tasks) {
+        List<Integer> ids = new ArrayList<>();
+        for (Task task : tasks) {
+            ids.add(task.getTaskId());
+        }
+        return ids;
+    }
+}